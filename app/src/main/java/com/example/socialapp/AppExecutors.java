@@ -0,0 +1,60 @@
+package com.example.socialapp;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared executors for work that must stay off the main thread.
+ * Feed ingestion runs on a single thread so snapshot events are applied
+ * in the order Firestore delivers them.
+ */
+public class AppExecutors {
+
+    private static final Executor ingestion = newBoundedExecutor(1, "feed-ingestion");
+    private static final Executor background = newBoundedExecutor(2, "app-background");
+    private static final Executor diskIO = newBoundedExecutor(1, "disk-io");
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static final Executor mainThread = mainHandler::post;
+
+    /**
+     * Ordered executor for mapping snapshots and building feed lists
+     */
+    public static Executor ingestion() {
+        return ingestion;
+    }
+
+    /**
+     * General purpose pool for disk and CPU work that does not need ordering
+     */
+    public static Executor background() {
+        return background;
+    }
+
+    /**
+     * Ordered executor for local database writes
+     */
+    public static Executor diskIO() {
+        return diskIO;
+    }
+
+    public static Executor mainThread() {
+        return mainThread;
+    }
+
+    private static Executor newBoundedExecutor(int threads, String name) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, name);
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
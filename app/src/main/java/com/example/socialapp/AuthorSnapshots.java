@@ -0,0 +1,137 @@
+package com.example.socialapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The author's username and avatar copied onto every post and comment when
+ * it is written, so rows render without reading users/{uid}.
+ *
+ * Each users/{uid} document carries an avatarVersion that goes up with every
+ * profile change; a copy older than its author's version is stale. After a
+ * change the author's recent posts and comments are rewritten in batches.
+ * Documents written before the copies existed have no version and are still
+ * drawn from the profile cache.
+ */
+public class AuthorSnapshots {
+
+    public static final String USERNAME = "username";
+    public static final String AVATAR_URL = "profileImageUrl";
+    public static final String AVATAR_VERSION = "avatarVersion";
+
+    private static final String TAG = "AuthorSnapshots";
+    private static final String PREFS_NAME = "author_snapshots";
+
+    private AuthorSnapshots() {}
+
+    /**
+     * Version of a user's profile; users who never changed it are at 1
+     */
+    public static long versionOf(User user) {
+        return Math.max(1, user.getAvatarVersion());
+    }
+
+    public static void put(Map<String, Object> document, User author) {
+        document.put(USERNAME, author.getUsername());
+        document.put(AVATAR_URL, author.getProfileImageUrl() != null ? author.getProfileImageUrl() : "");
+        document.put(AVATAR_VERSION, versionOf(author));
+    }
+
+    /**
+     * Apply profile changes and bump the version in one transaction, then
+     * propagate the new snapshot to the user's recent posts and comments
+     */
+    public static Task<Void> updateProfile(Context context, String userId, Map<String, Object> changes) {
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        DocumentReference userRef = db.collection(Constants.COLLECTION_USERS).document(userId);
+        return db.runTransaction(transaction -> {
+            DocumentSnapshot userDoc = transaction.get(userRef);
+            Map<String, Object> update = new HashMap<>(changes);
+            update.put(AVATAR_VERSION, Math.max(1, ModelMapper.getLong(userDoc, AVATAR_VERSION)) + 1);
+            transaction.set(userRef, update, SetOptions.merge());
+            return null;
+        }).addOnSuccessListener(result -> {
+            UserProfileCache.getInstance().invalidate(userId);
+            refreshIfStale(context, userId);
+        });
+    }
+
+    /**
+     * Propagate the user's current snapshot unless this device already did
+     * for that version; also picks up a propagation that was cut short
+     */
+    public static void refreshIfStale(Context context, String userId) {
+        SharedPreferences preferences = context.getApplicationContext()
+                .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        UserProfileCache.getInstance().get(userId, (user, error) -> {
+            // Never copy a missing username over the ones on the documents
+            if (user == null || user.getUsername() == null) return;
+            long version = versionOf(user);
+            if (preferences.getLong(userId, 0) >= version) return;
+            propagate(user).addOnSuccessListener(aVoid ->
+                    preferences.edit().putLong(userId, version).apply());
+        });
+    }
+
+    /**
+     * Rewrite the snapshot on the author's AUTHOR_SNAPSHOT_PROPAGATION_LIMIT
+     * most recent posts and comments whose version is behind
+     */
+    static Task<Void> propagate(User author) {
+        FirebaseFirestore db = FirebaseFirestore.getInstance();
+        Query posts = db.collection(Constants.COLLECTION_POSTS)
+                .whereEqualTo("userId", author.getUserId())
+                .orderBy("timestamp", Query.Direction.DESCENDING)
+                .limit(Constants.AUTHOR_SNAPSHOT_PROPAGATION_LIMIT);
+        Query comments = db.collectionGroup(Constants.COLLECTION_COMMENTS)
+                .whereEqualTo("userId", author.getUserId())
+                .orderBy("timestamp", Query.Direction.DESCENDING)
+                .limit(Constants.AUTHOR_SNAPSHOT_PROPAGATION_LIMIT);
+        Task<QuerySnapshot> postsRead = posts.get();
+        Task<QuerySnapshot> commentsRead = comments.get();
+
+        return Tasks.whenAllSuccess(postsRead, commentsRead).continueWithTask(task -> {
+            if (!task.isSuccessful()) return Tasks.forException(task.getException());
+            long version = versionOf(author);
+            List<DocumentReference> stale = new ArrayList<>();
+            for (QuerySnapshot snapshot : new QuerySnapshot[]{postsRead.getResult(), commentsRead.getResult()}) {
+                for (DocumentSnapshot doc : snapshot.getDocuments()) {
+                    if (ModelMapper.getLong(doc, AVATAR_VERSION) < version) {
+                        stale.add(doc.getReference());
+                    }
+                }
+            }
+            Map<String, Object> fields = new HashMap<>();
+            put(fields, author);
+
+            List<Task<Void>> commits = new ArrayList<>();
+            for (int start = 0; start < stale.size(); start += Constants.FIRESTORE_BATCH_LIMIT) {
+                WriteBatch batch = db.batch();
+                for (DocumentReference ref : stale.subList(start, Math.min(start + Constants.FIRESTORE_BATCH_LIMIT, stale.size()))) {
+                    batch.update(ref, fields);
+                }
+                commits.add(batch.commit());
+            }
+            if (BuildConfig.DEBUG) {
+                Log.d(TAG, "Refreshing " + stale.size() + " snapshots of " + author.getUserId() + " to version " + version);
+            }
+            return Tasks.whenAll(commits);
+        });
+    }
+}
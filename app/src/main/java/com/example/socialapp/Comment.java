@@ -3,10 +3,19 @@ package com.example.socialapp;
 import com.google.firebase.Timestamp;
 
 public class Comment {
+    private String id;
     private String userId;
     private String username;
     private String text;
+    // Author snapshot, see AuthorSnapshots; avatarVersion is 0 on older comments
+    private String profileImageUrl;
+    private long avatarVersion;
     private Timestamp timestamp;
+    private int likeCount;
+    // Set from the like lookup, not stored on the comment document
+    private boolean likedByCurrentUser;
+    // Written locally and not yet acknowledged by the server; never stored
+    private boolean pending;
 
     // Default constructor required for Firestore
     public Comment() {
@@ -20,6 +29,14 @@ public class Comment {
     }
 
     // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
     public String getUserId() {
         return userId;
     }
@@ -51,4 +68,67 @@ public class Comment {
     public void setTimestamp(Timestamp timestamp) {
         this.timestamp = timestamp;
     }
-}
\ No newline at end of file
+
+    public String getProfileImageUrl() {
+        return profileImageUrl;
+    }
+
+    public void setProfileImageUrl(String profileImageUrl) {
+        this.profileImageUrl = profileImageUrl;
+    }
+
+    public long getAvatarVersion() {
+        return avatarVersion;
+    }
+
+    public void setAvatarVersion(long avatarVersion) {
+        this.avatarVersion = avatarVersion;
+    }
+
+    public int getLikeCount() {
+        return likeCount;
+    }
+
+    public void setLikeCount(int likeCount) {
+        this.likeCount = likeCount;
+    }
+
+    public boolean isLikedByCurrentUser() {
+        return likedByCurrentUser;
+    }
+
+    public void setLikedByCurrentUser(boolean likedByCurrentUser) {
+        this.likedByCurrentUser = likedByCurrentUser;
+    }
+
+    public boolean isPending() {
+        return pending;
+    }
+
+    /**
+     * Copies with a different pending or like state; shown comments are never mutated
+     */
+    public Comment withPending(boolean pending) {
+        Comment copy = copy();
+        copy.pending = pending;
+        return copy;
+    }
+
+    public Comment withLikeState(boolean liked, int likeCount) {
+        Comment copy = copy();
+        copy.likedByCurrentUser = liked;
+        copy.likeCount = likeCount;
+        return copy;
+    }
+
+    private Comment copy() {
+        Comment copy = new Comment(userId, username, text, timestamp);
+        copy.id = id;
+        copy.profileImageUrl = profileImageUrl;
+        copy.avatarVersion = avatarVersion;
+        copy.likeCount = likeCount;
+        copy.likedByCurrentUser = likedByCurrentUser;
+        copy.pending = pending;
+        return copy;
+    }
+}
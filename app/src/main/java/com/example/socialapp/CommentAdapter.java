@@ -1,7 +1,6 @@
 package com.example.socialapp;
 
 import android.content.Context;
-import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
@@ -13,37 +12,49 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.bumptech.glide.Glide;
 import com.bumptech.glide.load.resource.bitmap.CircleCrop;
 import com.bumptech.glide.request.RequestOptions;
-import com.google.firebase.firestore.FirebaseFirestore;
 
 import java.text.SimpleDateFormat;
-import java.util.List;
 import java.util.Locale;
 
 public class CommentAdapter extends RecyclerView.Adapter<CommentAdapter.CommentViewHolder> {
 
+    private static final float PENDING_ALPHA = 0.6f;
+
     private Context context;
-    private List<Comment> commentList;
+    private CommentStore commentStore;
+    private String postId;
     private SimpleDateFormat dateFormat;
-    private FirebaseFirestore db;
 
-    public CommentAdapter(Context context, List<Comment> commentList) {
+    public CommentAdapter(Context context, CommentStore commentStore, String postId) {
         this.context = context;
-        this.commentList = commentList;
+        this.commentStore = commentStore;
+        this.postId = postId;
         this.dateFormat = new SimpleDateFormat("MMM dd, yyyy HH:mm", Locale.getDefault());
-        this.db = FirebaseFirestore.getInstance();
     }
 
     @NonNull
     @Override
     public CommentViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View view = LayoutInflater.from(context).inflate(R.layout.item_comment, parent, false);
-        return new CommentViewHolder(view);
+        return RowViewFactory.getInstance().create(parent, R.layout.item_comment, CommentViewHolder::new);
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return R.layout.item_comment;
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull CommentViewHolder holder) {
+        // Pooled rows may be reused by another screen; drop listeners that point at this one
+        if (holder.btnLikeComment != null) {
+            holder.btnLikeComment.setOnClickListener(null);
+        }
     }
 
     @Override
     public void onBindViewHolder(@NonNull CommentViewHolder holder, int position) {
         try {
-            Comment comment = commentList.get(position);
+            Comment comment = commentStore.get(position);
 
             // Set username with fallback
             String username = comment.getUsername();
@@ -56,19 +67,27 @@ public class CommentAdapter extends RecyclerView.Adapter<CommentAdapter.CommentV
             holder.tvCommentText.setText(comment.getText());
 
             // Load profile image
-            loadProfileImage(comment.getUserId(), holder.ivUserProfile);
+            loadProfileImage(comment, holder.ivUserProfile);
+
+            // Pending comments are drawn faded until the server accepts them
+            holder.itemView.setAlpha(comment.isPending() ? PENDING_ALPHA : 1f);
 
             // Format timestamp
-            if (comment.getTimestamp() != null) {
+            if (comment.isPending()) {
+                holder.tvTimestamp.setText("Sending...");
+            } else if (comment.getTimestamp() != null) {
                 String formattedDate = dateFormat.format(comment.getTimestamp().toDate());
                 holder.tvTimestamp.setText(formattedDate);
             } else {
                 holder.tvTimestamp.setText("Just now");
             }
 
-            // Set up like button click listener with simple functionality
-            if (holder.btnLikeComment != null) {
-                holder.btnLikeComment.setOnClickListener(v -> handleCommentLike(holder));
+            bindLikeState(holder, comment);
+            // Pending comments have nothing to like yet
+            if (holder.btnLikeComment != null && !comment.isPending()) {
+                holder.btnLikeComment.setOnClickListener(v -> toggleLike(comment, holder));
+            } else if (holder.btnLikeComment != null) {
+                holder.btnLikeComment.setOnClickListener(null);
             }
         } catch (Exception e) {
             // Handle any binding errors gracefully
@@ -78,98 +97,69 @@ public class CommentAdapter extends RecyclerView.Adapter<CommentAdapter.CommentV
         }
     }
 
-    private void loadProfileImage(String userId, ImageView profileImageView) {
+    private void loadProfileImage(Comment comment, ImageView profileImageView) {
+        String userId = comment.getUserId();
         try {
-            if (userId != null && !userId.isEmpty()) {
-                // Fetch user's profile image from Firestore
-                db.collection("users").document(userId)
-                        .get()
-                        .addOnSuccessListener(documentSnapshot -> {
-                            try {
-                                if (documentSnapshot.exists()) {
-                                    String profileImageUrl = documentSnapshot.getString("profileImageUrl");
-                                    if (profileImageUrl != null && !profileImageUrl.isEmpty()) {
-                                        // Load profile image with circular crop
-                                        Glide.with(context)
-                                                .load(profileImageUrl)
-                                                .apply(RequestOptions.bitmapTransform(new CircleCrop()))
-                                                .placeholder(R.drawable.ic_person)
-                                                .error(R.drawable.ic_person)
-                                                .into(profileImageView);
-                                    } else {
-                                        // No profile image, show default person icon
-                                        profileImageView.setImageResource(R.drawable.ic_person);
-                                    }
-                                } else {
-                                    // User document doesn't exist, show default
-                                    profileImageView.setImageResource(R.drawable.ic_person);
-                                }
-                            } catch (Exception e) {
-                                profileImageView.setImageResource(R.drawable.ic_person);
-                            }
-                        })
-                        .addOnFailureListener(e -> {
-                            // Error loading user data, show default
-                            profileImageView.setImageResource(R.drawable.ic_person);
-                        });
-            } else {
-                // No userId, show default
-                profileImageView.setImageResource(R.drawable.ic_person);
+            // Remember which user this view is bound to; it may be recycled before the lookup returns
+            profileImageView.setTag(userId);
+            Glide.with(context).clear(profileImageView);
+            profileImageView.setImageResource(R.drawable.ic_person);
+
+            if (comment.getAvatarVersion() > 0) {
+                // Comments written with an author snapshot need no profile read
+                showProfileImage(comment.getProfileImageUrl(), profileImageView);
+            } else if (userId != null && !userId.isEmpty()) {
+                UserProfileCache.getInstance().get(userId, (user, error) -> {
+                    if (!userId.equals(profileImageView.getTag())) return;
+                    showProfileImage(user != null ? user.getProfileImageUrl() : null, profileImageView);
+                });
             }
         } catch (Exception e) {
             profileImageView.setImageResource(R.drawable.ic_person);
         }
     }
 
-    private void handleCommentLike(CommentViewHolder holder) {
+    private void showProfileImage(String profileImageUrl, ImageView profileImageView) {
+        if (profileImageUrl != null && !profileImageUrl.isEmpty()) {
+            // Load profile image with circular crop
+            Glide.with(context)
+                    .load(profileImageUrl)
+                    .apply(RequestOptions.bitmapTransform(new CircleCrop()))
+                    .placeholder(R.drawable.ic_person)
+                    .error(R.drawable.ic_person)
+                    .into(profileImageView);
+        }
+    }
+
+    private void bindLikeState(CommentViewHolder holder, Comment comment) {
+        boolean liked = comment.isLikedByCurrentUser();
+        if (holder.btnLikeComment != null) {
+            holder.btnLikeComment.setSelected(liked);
+        }
+        if (holder.ivLikeIcon != null) {
+            holder.ivLikeIcon.setImageResource(liked ? R.drawable.ic_heart_filled : R.drawable.ic_heart_outline);
+            holder.ivLikeIcon.setColorFilter(context.getResources().getColor(liked ? R.color.like_color : R.color.white));
+        }
+        if (holder.tvLikeCount != null) {
+            holder.tvLikeCount.setText(String.valueOf(comment.getLikeCount()));
+        }
+    }
+
+    private void toggleLike(Comment comment, CommentViewHolder holder) {
         try {
-            // Toggle like state
-            boolean isLiked = holder.btnLikeComment.isSelected();
-            holder.btnLikeComment.setSelected(!isLiked);
-            
-            if (!isLiked) {
-                // Like - change icon to filled heart
-                if (holder.ivLikeIcon != null) {
-                    holder.ivLikeIcon.setImageResource(R.drawable.ic_heart_filled);
-                    holder.ivLikeIcon.setColorFilter(context.getResources().getColor(R.color.like_color));
-                }
-                
-                // Update like count
-                if (holder.tvLikeCount != null) {
-                    try {
-                        int currentLikes = Integer.parseInt(holder.tvLikeCount.getText().toString());
-                        holder.tvLikeCount.setText(String.valueOf(currentLikes + 1));
-                    } catch (Exception e) {
-                        holder.tvLikeCount.setText("1");
-                    }
-                }
-            } else {
-                // Unlike - change icon back to outline heart
-                if (holder.ivLikeIcon != null) {
-                    holder.ivLikeIcon.setImageResource(R.drawable.ic_heart_outline);
-                    holder.ivLikeIcon.setColorFilter(context.getResources().getColor(R.color.white));
-                }
-                
-                // Update like count
-                if (holder.tvLikeCount != null) {
-                    try {
-                        int currentLikes = Integer.parseInt(holder.tvLikeCount.getText().toString());
-                        if (currentLikes > 0) {
-                            holder.tvLikeCount.setText(String.valueOf(currentLikes - 1));
-                        }
-                    } catch (Exception e) {
-                        holder.tvLikeCount.setText("0");
-                    }
-                }
-            }
+            // Show the new state now; the write is debounced and the row is redrawn
+            // from the store when the like controller reports back
+            Comment shown = LikeController.getInstance().toggle(postId, comment);
+            bindLikeState(holder, shown);
+            holder.btnLikeComment.setOnClickListener(v -> toggleLike(shown, holder));
         } catch (Exception e) {
-            // Handle any errors gracefully
+            // Handle like toggle errors
         }
     }
 
     @Override
     public int getItemCount() {
-        return commentList.size();
+        return commentStore.size();
     }
 
     public static class CommentViewHolder extends RecyclerView.ViewHolder {
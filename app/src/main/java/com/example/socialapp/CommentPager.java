@@ -0,0 +1,261 @@
+package com.example.socialapp;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cursor-paginated comments of a query ordered by "timestamp" ascending,
+ * shown oldest first. Only the newest page is read with limitToLast and kept
+ * live; older pages are fetched once with endBefore cursors as the list is
+ * scrolled up, so reads and memory follow what the user scrolled through
+ * rather than the size of the thread.
+ *
+ * Snapshots are mapped on the ingestion executor and applied to a
+ * CommentStore change by change on the main thread.
+ */
+public class CommentPager {
+
+    public interface Listener {
+        /**
+         * The store changed; previousSize is its size before the change
+         */
+        void onCommentsChanged(int previousSize);
+        void onError(String error);
+    }
+
+    /**
+     * One document change of the tail, mapped off the main thread
+     */
+    private static class TailChange {
+        final DocumentChange.Type type;
+        final int oldIndex;
+        final int newIndex;
+        final Comment comment;
+        final boolean leftWindow;
+
+        TailChange(DocumentChange.Type type, int oldIndex, int newIndex, Comment comment, boolean leftWindow) {
+            this.type = type;
+            this.oldIndex = oldIndex;
+            this.newIndex = newIndex;
+            this.comment = comment;
+            this.leftWindow = leftWindow;
+        }
+    }
+
+    private static final String ORDER_FIELD = "timestamp";
+
+    private final Query baseQuery;
+    private final int pageSize;
+    private final CommentStore store;
+    private final Listener listener;
+
+    // Everything below is only touched on the ingestion executor
+    private DocumentSnapshot firstTailDocument;
+    private DocumentSnapshot firstOlderDocument;
+    private boolean tailLoaded = false;
+    private boolean loadingOlder = false;
+    private boolean startReached = false;
+
+    private ListenerRegistration tailRegistration;
+    private volatile int generation = 0;
+
+    public CommentPager(Query baseQuery, int pageSize, CommentStore store, Listener listener) {
+        this.baseQuery = baseQuery;
+        this.pageSize = pageSize;
+        this.store = store;
+        this.listener = listener;
+    }
+
+    /**
+     * Drop any loaded pages and start listening to the newest page again
+     */
+    public void start() {
+        stop();
+        store.clear();
+        final int startGeneration = generation;
+        tailRegistration = baseQuery.limitToLast(pageSize)
+                .addSnapshotListener(AppExecutors.ingestion(), (snapshot, e) -> {
+                    if (startGeneration != generation) return;
+                    if (e != null) {
+                        postError(startGeneration, e.getMessage());
+                        return;
+                    }
+                    if (snapshot != null) {
+                        onTailSnapshot(snapshot, startGeneration);
+                    }
+                });
+    }
+
+    public void stop() {
+        generation++;
+        if (tailRegistration != null) {
+            tailRegistration.remove();
+            tailRegistration = null;
+        }
+        AppExecutors.ingestion().execute(() -> {
+            firstTailDocument = null;
+            firstOlderDocument = null;
+            tailLoaded = false;
+            loadingOlder = false;
+            startReached = false;
+        });
+    }
+
+    private void onTailSnapshot(QuerySnapshot snapshot, int snapshotGeneration) {
+        List<DocumentChange> changes = snapshot.getDocumentChanges();
+        if (tailLoaded && changes.isEmpty()) return;
+
+        List<DocumentSnapshot> documents = snapshot.getDocuments();
+        DocumentSnapshot newFirst = documents.isEmpty() ? null : documents.get(0);
+        boolean windowFull = newFirst != null && documents.size() == pageSize;
+
+        // A comment pushed out of the live window by newer ones stays on screen
+        // as the newest of the static older comments
+        List<TailChange> tailChanges = new ArrayList<>(changes.size());
+        List<String> addedIds = new ArrayList<>();
+        for (DocumentChange change : changes) {
+            DocumentChange.Type type = change.getType();
+            if (type == DocumentChange.Type.REMOVED) {
+                DocumentSnapshot doc = change.getDocument();
+                boolean leftWindow = windowFull && sortsBefore(doc, newFirst);
+                if (leftWindow && (firstOlderDocument == null || sortsBefore(doc, firstOlderDocument))) {
+                    firstOlderDocument = doc;
+                }
+                tailChanges.add(new TailChange(type, change.getOldIndex(), -1, null, leftWindow));
+            } else {
+                Comment comment = ModelMapper.toComment(change.getDocument());
+                if (type == DocumentChange.Type.ADDED) {
+                    addedIds.add(comment.getId());
+                }
+                tailChanges.add(new TailChange(type, change.getOldIndex(), change.getNewIndex(), comment, false));
+            }
+        }
+        deliver(snapshotGeneration, () -> {
+            for (TailChange change : tailChanges) {
+                store.applyTailChange(change.type, change.oldIndex, change.newIndex, change.comment, change.leftWindow);
+            }
+        });
+        resolveLikes(addedIds, snapshotGeneration);
+
+        firstTailDocument = newFirst;
+        if (!tailLoaded) {
+            tailLoaded = true;
+            startReached = documents.size() < pageSize;
+        }
+    }
+
+    /**
+     * Fetch the page before the oldest loaded comment, unless one is already in flight
+     */
+    public void loadOlderPage() {
+        final int requestGeneration = generation;
+        AppExecutors.ingestion().execute(() -> {
+            if (requestGeneration != generation) return;
+            if (!tailLoaded || loadingOlder || startReached) return;
+
+            DocumentSnapshot cursor = firstOlderDocument != null ? firstOlderDocument : firstTailDocument;
+            if (cursor == null) return;
+
+            loadingOlder = true;
+            baseQuery.endBefore(cursor)
+                    .limitToLast(pageSize)
+                    .get()
+                    .addOnSuccessListener(AppExecutors.ingestion(), snapshot -> {
+                        if (requestGeneration != generation) return;
+                        loadingOlder = false;
+
+                        List<DocumentSnapshot> documents = snapshot.getDocuments();
+                        List<Comment> page = new ArrayList<>(documents.size());
+                        List<String> pageIds = new ArrayList<>(documents.size());
+                        for (DocumentSnapshot doc : documents) {
+                            Comment comment = ModelMapper.toComment(doc);
+                            page.add(comment);
+                            pageIds.add(comment.getId());
+                        }
+                        deliver(requestGeneration, () -> store.prependOlder(page));
+                        resolveLikes(pageIds, requestGeneration);
+                        if (!documents.isEmpty()) {
+                            firstOlderDocument = documents.get(0);
+                        }
+                        if (documents.size() < pageSize) {
+                            startReached = true;
+                        }
+                    })
+                    .addOnFailureListener(AppExecutors.ingestion(), e -> {
+                        if (requestGeneration != generation) return;
+                        loadingOlder = false;
+                        postError(requestGeneration, e.getMessage());
+                    });
+        });
+    }
+
+    /**
+     * Scroll listener that requests the previous page once the first visible
+     * row is within prefetchDistance rows of the top of the list
+     */
+    public RecyclerView.OnScrollListener prefetchListener(int prefetchDistance) {
+        return new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy >= 0) return;
+                RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+                if (!(layoutManager instanceof LinearLayoutManager)) return;
+
+                int firstVisible = ((LinearLayoutManager) layoutManager).findFirstVisibleItemPosition();
+                if (firstVisible != RecyclerView.NO_POSITION && firstVisible <= prefetchDistance) {
+                    loadOlderPage();
+                }
+            }
+        };
+    }
+
+    /**
+     * Look up which of the newly loaded comments the current user liked, in
+     * one batched query per FIRESTORE_WHERE_IN_LIMIT comments, and redraw those
+     */
+    private void resolveLikes(List<String> commentIds, int resolveGeneration) {
+        if (commentIds.isEmpty()) return;
+        LikeService.getInstance().loadLikedCommentIds(commentIds, AppExecutors.ingestion(), likedIds -> {
+            if (likedIds.isEmpty()) return;
+            deliver(resolveGeneration, () -> store.likeStatesChanged(likedIds));
+        });
+    }
+
+    /**
+     * Apply a change to the store on the main thread and tell the listener
+     */
+    private void deliver(int deliverGeneration, Runnable change) {
+        AppExecutors.mainThread().execute(() -> {
+            if (deliverGeneration != generation) return;
+            int previousSize = store.size();
+            change.run();
+            listener.onCommentsChanged(previousSize);
+        });
+    }
+
+    private void postError(int errorGeneration, String error) {
+        AppExecutors.mainThread().execute(() -> {
+            if (errorGeneration == generation) {
+                listener.onError(error);
+            }
+        });
+    }
+
+    private static boolean sortsBefore(DocumentSnapshot doc, DocumentSnapshot first) {
+        Timestamp docTime = doc.getTimestamp(ORDER_FIELD);
+        Timestamp firstTime = first.getTimestamp(ORDER_FIELD);
+        if (docTime == null || firstTime == null) return false;
+        return docTime.compareTo(firstTime) <= 0;
+    }
+}
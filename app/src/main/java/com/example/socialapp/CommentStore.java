@@ -0,0 +1,215 @@
+package com.example.socialapp;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.firebase.firestore.DocumentChange;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The comments of one thread in display order: older pages, then the live
+ * tail, then comments still being written from this screen. Comments are
+ * keyed by id, so each change of the tail is applied at its position and
+ * passed to the adapter as a positional notify; the cost of a change depends
+ * on the size of the tail, not of the thread.
+ *
+ * Comments are kept as mapped; pending and like state are applied when a
+ * row is read, so a settled or rolled back like shows the stored comment.
+ *
+ * Only used on the main thread.
+ */
+public class CommentStore {
+
+    private final KeyedList<Comment> comments = new KeyedList<>(Comment::getId);
+    // Comments whose write the server has not acknowledged yet
+    private final Set<String> pendingIds = new HashSet<>();
+    private RecyclerView.Adapter<?> adapter;
+    // comments = [olderCount older][tailCount tail][pending not yet in the tail]
+    private int olderCount = 0;
+    private int tailCount = 0;
+
+    public void setAdapter(RecyclerView.Adapter<?> adapter) {
+        this.adapter = adapter;
+    }
+
+    public int size() {
+        return comments.size();
+    }
+
+    public Comment get(int position) {
+        return decorate(comments.get(position));
+    }
+
+    public int indexOf(String commentId) {
+        return comments.indexOf(commentId);
+    }
+
+    /**
+     * Apply one change of the tail snapshot using its old and new indexes.
+     * leftWindow marks a removal caused by newer comments pushing this one
+     * out of the tail; it stays on screen as the newest older comment.
+     */
+    public void applyTailChange(DocumentChange.Type type, int oldIndex, int newIndex,
+                                Comment comment, boolean leftWindow) {
+        switch (type) {
+            case ADDED:
+                addToTail(newIndex, comment);
+                break;
+            case MODIFIED:
+                int from = olderCount + oldIndex;
+                int to = olderCount + newIndex;
+                comments.apply(type, from, to, comment);
+                if (from != to) {
+                    notifyMoved(from, to);
+                }
+                notifyChanged(to);
+                break;
+            case REMOVED:
+                int position = olderCount + oldIndex;
+                tailCount--;
+                if (!leftWindow) {
+                    comments.remove(position);
+                    notifyRemoved(position);
+                } else if (position == olderCount) {
+                    olderCount++;
+                } else {
+                    comments.add(olderCount, comments.remove(position));
+                    notifyMoved(position, olderCount);
+                    olderCount++;
+                }
+                break;
+        }
+    }
+
+    private void addToTail(int newIndex, Comment comment) {
+        int existing = comments.indexOf(comment.getId());
+        if (existing >= 0) {
+            // Slid back in from the older comments after a deletion, or the
+            // echo of a comment written from this screen
+            comments.remove(existing);
+            if (existing < olderCount) {
+                olderCount--;
+            }
+        }
+        int position = olderCount + newIndex;
+        comments.add(position, comment);
+        tailCount++;
+        if (existing < 0) {
+            notifyInserted(position);
+            return;
+        }
+        if (existing != position) {
+            notifyMoved(existing, position);
+        }
+        notifyChanged(position);
+    }
+
+    /**
+     * Put a page of older comments, oldest first, above everything loaded
+     */
+    public void prependOlder(List<Comment> page) {
+        List<Comment> fresh = new ArrayList<>(page.size());
+        for (Comment comment : page) {
+            if (!comments.containsKey(comment.getId())) {
+                fresh.add(comment);
+            }
+        }
+        comments.addAll(0, fresh);
+        olderCount += fresh.size();
+        if (adapter != null && !fresh.isEmpty()) {
+            adapter.notifyItemRangeInserted(0, fresh.size());
+        }
+    }
+
+    /**
+     * Show a comment that is being written at the end of the list; adding
+     * the same id twice shows it once
+     */
+    public boolean addPending(Comment comment) {
+        if (comments.containsKey(comment.getId())) return false;
+        pendingIds.add(comment.getId());
+        comments.add(comment);
+        notifyInserted(comments.size() - 1);
+        return true;
+    }
+
+    /**
+     * The server accepted the write
+     */
+    public void confirmPending(String commentId) {
+        if (!pendingIds.remove(commentId)) return;
+        int position = comments.indexOf(commentId);
+        if (position >= 0) {
+            notifyChanged(position);
+        }
+    }
+
+    /**
+     * The write failed; the row disappears unless the tail has the comment after all
+     */
+    public void discardPending(String commentId) {
+        if (!pendingIds.remove(commentId)) return;
+        int position = comments.indexOf(commentId);
+        if (position < 0) return;
+        if (position >= olderCount + tailCount) {
+            comments.remove(position);
+            notifyRemoved(position);
+        } else {
+            notifyChanged(position);
+        }
+    }
+
+    /**
+     * Redraw rows whose like state may have changed
+     */
+    public void likeStatesChanged(Collection<String> commentIds) {
+        for (String commentId : commentIds) {
+            int position = comments.indexOf(commentId);
+            if (position >= 0) {
+                notifyChanged(position);
+            }
+        }
+    }
+
+    public void clear() {
+        comments.clear();
+        pendingIds.clear();
+        olderCount = 0;
+        tailCount = 0;
+        if (adapter != null) {
+            adapter.notifyDataSetChanged();
+        }
+    }
+
+    private Comment decorate(Comment comment) {
+        if (pendingIds.contains(comment.getId())) {
+            comment = comment.withPending(true);
+        }
+        Boolean liked = LikeService.getInstance().isCommentLikedCached(comment.getId());
+        if (liked != null && liked != comment.isLikedByCurrentUser()) {
+            comment = comment.withLikeState(liked, comment.getLikeCount());
+        }
+        // A like still being written shows its local state and count
+        return LikeController.getInstance().apply(comment);
+    }
+
+    private void notifyInserted(int position) {
+        if (adapter != null) adapter.notifyItemInserted(position);
+    }
+
+    private void notifyChanged(int position) {
+        if (adapter != null) adapter.notifyItemChanged(position);
+    }
+
+    private void notifyMoved(int from, int to) {
+        if (adapter != null) adapter.notifyItemMoved(from, to);
+    }
+
+    private void notifyRemoved(int position) {
+        if (adapter != null) adapter.notifyItemRemoved(position);
+    }
+}
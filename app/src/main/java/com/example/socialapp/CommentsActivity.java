@@ -11,16 +11,16 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.firebase.Timestamp;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.DocumentChange;
-import com.google.firebase.firestore.DocumentSnapshot;
-import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.WriteBatch;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 public class CommentsActivity extends AppCompatActivity {
 
@@ -29,11 +29,25 @@ public class CommentsActivity extends AppCompatActivity {
     private Button btnSendComment;
 
     private CommentAdapter commentAdapter;
-    private List<Comment> commentList;
+    private CommentStore commentStore;
     private String postId;
+    private String postAuthorId;
     private String currentUsername;
+    // Copied onto new comments as their author snapshot once loaded
+    private User currentUser;
     private FirebaseFirestore db;
-    private ListenerRegistration commentsListener;
+    private CommentPager commentPager;
+    // Id the current draft is written under; kept across a failed send
+    private String draftCommentId;
+    private final Set<String> submittingIds = new HashSet<>();
+    // Redraws a comment row when its like state changes or a like write is rolled back
+    private final LikeController.Listener likeListener = (commentId, error) -> {
+        if (commentStore.indexOf(commentId) < 0) return;
+        commentStore.likeStatesChanged(Collections.singleton(commentId));
+        if (error != null) {
+            Toast.makeText(this, "Failed to update like: " + error, Toast.LENGTH_SHORT).show();
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -41,6 +55,7 @@ public class CommentsActivity extends AppCompatActivity {
         setContentView(R.layout.activity_comments);
 
         postId = getIntent().getStringExtra("postId");
+        postAuthorId = getIntent().getStringExtra("postAuthorId");
         db = FirebaseFirestore.getInstance();
 
         initViews();
@@ -49,6 +64,7 @@ public class CommentsActivity extends AppCompatActivity {
         loadComments();
 
         btnSendComment.setOnClickListener(v -> addComment());
+        LikeController.getInstance().addListener(likeListener);
     }
 
     private void initViews() {
@@ -58,9 +74,13 @@ public class CommentsActivity extends AppCompatActivity {
     }
 
     private void setupRecyclerView() {
-        commentList = new ArrayList<>();
-        commentAdapter = new CommentAdapter(this, commentList);
-        rvComments.setLayoutManager(new LinearLayoutManager(this));
+        commentStore = new CommentStore();
+        commentAdapter = new CommentAdapter(this, commentStore, postId);
+        commentStore.setAdapter(commentAdapter);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        layoutManager.setRecycleChildrenOnDetach(true);
+        rvComments.setLayoutManager(layoutManager);
+        rvComments.setRecycledViewPool(RowViewFactory.getInstance().sharedPool());
         rvComments.setAdapter(commentAdapter);
     }
 
@@ -72,6 +92,7 @@ public class CommentsActivity extends AppCompatActivity {
                 .get()
                 .addOnSuccessListener(documentSnapshot -> {
                     if (documentSnapshot.exists()) {
+                        currentUser = ModelMapper.toUser(documentSnapshot);
                         currentUsername = documentSnapshot.getString("username");
                         if (currentUsername == null || currentUsername.isEmpty()) {
                             currentUsername = "User"; // Fallback username
@@ -85,46 +106,49 @@ public class CommentsActivity extends AppCompatActivity {
                 });
     }
 
+    /**
+     * Show the newest page of comments at the bottom and page older ones in
+     * as the list is scrolled up
+     */
     private void loadComments() {
-        commentsListener = db.collection("posts")
+        Query commentsQuery = db.collection(Constants.COLLECTION_POSTS)
                 .document(postId)
-                .collection("comments")
-                .orderBy("timestamp")
-                .addSnapshotListener((snapshots, e) -> {
-                    if (e != null) {
-                        Toast.makeText(this, "Error loading comments: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                        return;
-                    }
+                .collection(Constants.COLLECTION_COMMENTS)
+                .orderBy("timestamp");
+        commentPager = new CommentPager(commentsQuery, Constants.COMMENTS_PAGE_SIZE, commentStore, new CommentPager.Listener() {
+            @Override
+            public void onCommentsChanged(int previousSize) {
+                CommentsActivity.this.onCommentsChanged(previousSize);
+            }
+
+            @Override
+            public void onError(String error) {
+                Toast.makeText(CommentsActivity.this, "Error loading comments: " + error, Toast.LENGTH_SHORT).show();
+            }
+        });
+        rvComments.addOnScrollListener(commentPager.prefetchListener(Constants.COMMENTS_PREFETCH_DISTANCE));
+        commentPager.start();
+    }
 
-                    if (snapshots != null) {
-                        for (DocumentChange dc : snapshots.getDocumentChanges()) {
-                            Comment comment = dc.getDocument().toObject(Comment.class);
-                            
-                            if (comment != null) {
-                                // Ensure username is set
-                                if (comment.getUsername() == null || comment.getUsername().isEmpty()) {
-                                    comment.setUsername("Anonymous");
-                                }
-
-                                switch (dc.getType()) {
-                                    case ADDED:
-                                        commentList.add(comment);
-                                        commentAdapter.notifyItemInserted(commentList.size() - 1);
-                                        rvComments.scrollToPosition(commentList.size() - 1);
-                                        break;
-                                    case MODIFIED:
-                                        // Handle comment updates if needed
-                                        break;
-                                    case REMOVED:
-                                        // Handle comment removal if needed
-                                        break;
-                                }
-                            }
-                        }
-                    }
-                });
+    /**
+     * Follow new comments while the list is at the bottom; older pages are
+     * inserted above the visible rows, which keeps them in place
+     */
+    private void onCommentsChanged(int previousSize) {
+        LinearLayoutManager layoutManager = (LinearLayoutManager) rvComments.getLayoutManager();
+        // Layout positions still describe the list before the change
+        int lastVisible = layoutManager.findLastVisibleItemPosition();
+        boolean atBottom = previousSize == 0 || lastVisible >= previousSize - 1;
+        if (atBottom && commentStore.size() > 0) {
+            rvComments.scrollToPosition(commentStore.size() - 1);
+        }
     }
 
+    /**
+     * Write the comment, the post's comment count and the author's stats in
+     * one batch under a client-generated id. The comment is shown as a
+     * pending row right away and confirmed or dropped on the server result.
+     */
     private void addComment() {
         String commentText = etComment.getText().toString().trim();
         if (commentText.isEmpty()) {
@@ -137,38 +161,66 @@ public class CommentsActivity extends AppCompatActivity {
         }
 
         String currentUserId = FirebaseAuth.getInstance().getCurrentUser().getUid();
+        DocumentReference postRef = db.collection(Constants.COLLECTION_POSTS).document(postId);
+        if (draftCommentId == null) {
+            draftCommentId = postRef.collection(Constants.COLLECTION_COMMENTS).document().getId();
+        }
+        String commentId = draftCommentId;
+        // A repeated submit of the same draft is already on its way
+        if (!submittingIds.add(commentId)) return;
+        draftCommentId = null;
 
+        Timestamp timestamp = Timestamp.now();
         Map<String, Object> comment = new HashMap<>();
         comment.put("userId", currentUserId);
         comment.put("username", currentUsername); // Use actual username
         comment.put("text", commentText);
-        comment.put("timestamp", Timestamp.now());
-
-        // Add comment to subcollection
-        db.collection("posts").document(postId)
-                .collection("comments")
-                .add(comment)
-                .addOnSuccessListener(documentReference -> {
-                    Toast.makeText(this, "Comment added successfully!", Toast.LENGTH_SHORT).show();
-                    etComment.setText("");
+        comment.put("timestamp", timestamp);
+
+        Comment pendingComment = new Comment(currentUserId, currentUsername, commentText, timestamp);
+        pendingComment.setId(commentId);
+        boolean hasSnapshot = currentUser != null && currentUsername.equals(currentUser.getUsername());
+        if (hasSnapshot) {
+            AuthorSnapshots.put(comment, currentUser);
+            pendingComment.setProfileImageUrl(currentUser.getProfileImageUrl());
+            pendingComment.setAvatarVersion(AuthorSnapshots.versionOf(currentUser));
+        }
+        // Nobody has liked it yet; no need to look that up when it arrives
+        LikeService.getInstance().rememberCommentLiked(commentId, false);
+        commentStore.addPending(pendingComment);
+        rvComments.scrollToPosition(commentStore.size() - 1);
+        etComment.setText("");
+
+        WriteBatch batch = db.batch();
+        batch.set(postRef.collection(Constants.COLLECTION_COMMENTS).document(commentId), comment);
+        ShardedCounter.getInstance().increment(batch, postRef, "commentCount", 1);
+        UserStats.increment(batch, currentUserId, UserStats.COMMENTS_MADE, 1);
+        UserStats.increment(batch, postAuthorId, UserStats.COMMENTS_RECEIVED, 1);
+        batch.commit()
+                .addOnSuccessListener(aVoid -> {
+                    submittingIds.remove(commentId);
+                    commentStore.confirmPending(commentId);
+                    ShardedCounter.getInstance().scheduleRollup(postRef, "commentCount");
+                    FeedSignals.getInstance(this).recordInteraction(postAuthorId);
                 })
                 .addOnFailureListener(e -> {
+                    submittingIds.remove(commentId);
+                    commentStore.discardPending(commentId);
+                    // Give the text back so it can be sent again under the same id
+                    if (etComment.getText().toString().trim().isEmpty()) {
+                        etComment.setText(commentText);
+                        draftCommentId = commentId;
+                    }
                     Toast.makeText(this, "Failed to add comment: " + e.getMessage(), Toast.LENGTH_SHORT).show();
                 });
-
-        // Update comment count
-        db.collection("posts").document(postId)
-                .update("commentCount", FieldValue.increment(1))
-                .addOnFailureListener(e -> {
-                    // Handle comment count update failure
-                });
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (commentsListener != null) {
-            commentsListener.remove();
+        LikeController.getInstance().removeListener(likeListener);
+        if (commentPager != null) {
+            commentPager.stop();
         }
     }
 }
@@ -5,6 +5,9 @@ public class Constants {
     public static final String COLLECTION_USERS = "users";
     public static final String COLLECTION_POSTS = "posts";
     public static final String COLLECTION_COMMENTS = "comments";
+    public static final String COLLECTION_TIMELINES = "timelines";
+    public static final String COLLECTION_TIMELINE_ITEMS = "items";
+    public static final String COLLECTION_LARGE_ACCOUNTS = "largeAccounts";
 
     // Storage References
     public static final String STORAGE_POSTS = "posts";
@@ -18,6 +21,11 @@ public class Constants {
     public static final int MAX_IMAGE_WIDTH = 1024;
     public static final int MAX_IMAGE_HEIGHT = 1024;
     public static final int IMAGE_COMPRESSION_QUALITY = 80;
+    // Widths of the smaller renditions uploaded next to each post image
+    public static final int IMAGE_FEED_WIDTH = 640;
+    // Covers a profile grid cell on screens up to 1440 px wide
+    public static final int IMAGE_GRID_WIDTH = 480;
+    public static final int IMAGE_THUMB_WIDTH = 160;
 
     // Request Codes
     public static final int REQUEST_CAMERA = 100;
@@ -61,6 +69,64 @@ public class Constants {
     public static final int FILTER_PROCESSING_DELAY = 2000;
     public static final int CAPTION_MAX_LENGTH = 500;
 
+    // Feed Paging
+    public static final int FEED_PAGE_SIZE = 20;
+    public static final int FEED_PREFETCH_DISTANCE = 5;
+    // Profile post grids: a live window of the newest page, older pages by cursor
+    public static final int PROFILE_GRID_COLUMNS = 3;
+    public static final int PROFILE_PAGE_SIZE = 18;
+    public static final int PROFILE_PREFETCH_ROWS = 3;
+    // Comment threads: a live window of the newest comments, older pages by cursor
+    public static final int COMMENTS_PAGE_SIZE = 30;
+    public static final int COMMENTS_PREFETCH_DISTANCE = 5;
+    // Rows ahead of the scroll direction whose images are preloaded
+    public static final int FEED_IMAGE_PRELOAD_ROWS = 4;
+    // Posts kept in the on-disk feed snapshot shown on cold start
+    public static final int FEED_SNAPSHOT_MAX_POSTS = 60;
+
+    // Row creation: rows inflated ahead of time and kept per view type in the shared pool
+    public static final int ROW_PREWARM_POSTS = 3;
+    public static final int ROW_PREWARM_COMMENTS = 6;
+    public static final int ROW_POOL_SIZE = 8;
+
+    // Precomputed post texts kept in memory
+    public static final int POST_TEXT_CACHE_SIZE = 200;
+
+    // User Profile Cache
+    public static final int USER_CACHE_MAX_ENTRIES = 200;
+    public static final long USER_CACHE_TTL_MS = 5 * 60 * 1000;
+
+    // Recent posts and comments whose author snapshot is rewritten after a profile change
+    public static final int AUTHOR_SNAPSHOT_PROPAGATION_LIMIT = 100;
+
+    // Aggregation query results
+    public static final long STATS_CACHE_TTL_MS = 60 * 1000;
+
+    // Firestore allows at most 30 values in a single whereIn filter
+    public static final int FIRESTORE_WHERE_IN_LIMIT = 30;
+    // and at most 500 writes in a single batch
+    public static final int FIRESTORE_BATCH_LIMIT = 500;
+
+    // Timelines: authors with more followers are fanned out on read instead of on write
+    public static final int FANOUT_MAX_FOLLOWERS = 1000;
+    // Posts copied per chunk of followed authors when an older account's timeline is backfilled
+    public static final int TIMELINE_BACKFILL_POSTS = 100;
+    // Users checked per page when looking for follows made before the following index
+    public static final int FOLLOW_MIGRATION_PAGE_SIZE = 300;
+
+    // Firestore emulator, as seen from the Android emulator
+    public static final String FIRESTORE_EMULATOR_HOST = "10.0.2.2";
+    public static final int FIRESTORE_EMULATOR_PORT = 8080;
+
+    // Sharded Counters
+    public static final int COUNTER_SHARDS = 10;
+    public static final long COUNTER_ROLLUP_DELAY_MS = 30 * 1000;
+
+    // Likes
+    public static final long LIKE_DEBOUNCE_MS = 400;
+    // A rollup can be put off by one interval when another client just folded the counter
+    public static final long LIKE_OVERLAY_TTL_MS = 3 * COUNTER_ROLLUP_DELAY_MS;
+
     // Error Messages
     public static final String ERROR_NO_IMAGE = "Please select an image first";
     public static final String ERROR_NO_INTERNET = "No internet connection";
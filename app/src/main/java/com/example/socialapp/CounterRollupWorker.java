@@ -0,0 +1,25 @@
+package com.example.socialapp;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+/**
+ * Folds the shards of every counter this client wrote to into their parents.
+ * Enqueued as unique work by ShardedCounter.scheduleRollup.
+ */
+public class CounterRollupWorker extends Worker {
+
+    public CounterRollupWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        ShardedCounter.init(getApplicationContext());
+        return ShardedCounter.getInstance().rollupPending() ? Result.success() : Result.retry();
+    }
+}
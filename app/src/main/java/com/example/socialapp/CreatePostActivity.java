@@ -31,9 +31,9 @@ import androidx.core.content.FileProvider;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.card.MaterialCardView;
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.storage.FirebaseStorage;
-import com.google.firebase.storage.StorageReference;
+import com.google.firebase.firestore.WriteBatch;
 import com.google.firebase.Timestamp;
 
 import okhttp3.*;
@@ -59,11 +59,12 @@ public class CreatePostActivity extends AppCompatActivity {
     private ProgressBar progressBar;
 
     private Bitmap selectedBitmap;
-    private FirebaseStorage storage;
     private FirebaseFirestore db;
     private String currentUserId;
     private String currentUsername = Constants.DEFAULT_USERNAME;
     private String currentProfileImageUrl = "";
+    // Copied onto the post as its author snapshot once loaded
+    private User currentAuthor;
     private ARFilterManager arFilterManager;
 
     // For resize functionality
@@ -83,7 +84,6 @@ public class CreatePostActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_create_post);
 
-        storage = FirebaseStorage.getInstance();
         db = FirebaseFirestore.getInstance();
         currentUserId = FirebaseAuth.getInstance().getCurrentUser().getUid();
         arFilterManager = new ARFilterManager(this);
@@ -483,6 +483,7 @@ public class CreatePostActivity extends AppCompatActivity {
             public void onSuccess(User user) {
                 if (user != null && user.getUsername() != null) {
                     currentUsername = user.getUsername();
+                    currentAuthor = user;
                 }
                 if (user != null && user.getProfileImageUrl() != null) {
                     currentProfileImageUrl = user.getProfileImageUrl();
@@ -711,41 +712,47 @@ public class CreatePostActivity extends AppCompatActivity {
         progressBar.setVisibility(View.VISIBLE);
         btnPost.setEnabled(false);
 
-        // Upload image to Firebase Storage
-        StorageReference imageRef = storage.getReference()
-                .child(Constants.STORAGE_POSTS + "/" + System.currentTimeMillis() + ".jpg");
-
-        byte[] data = ImageUtils.bitmapToByteArray(selectedBitmap, Constants.IMAGE_COMPRESSION_QUALITY);
-
+        // Upload the image renditions to Firebase Storage
         String finalCaption = caption;
-        imageRef.putBytes(data)
-                .addOnSuccessListener(taskSnapshot -> {
-                    imageRef.getDownloadUrl().addOnSuccessListener(uri -> {
-                        savePostToFirestore(uri.toString(), finalCaption);
-                    });
-                })
-                .addOnFailureListener(e -> {
-                    progressBar.setVisibility(View.GONE);
-                    btnPost.setEnabled(true);
-                    Toast.makeText(this, "Upload failed: " + e.getMessage(),
-                            Toast.LENGTH_SHORT).show();
-                });
+        new PostImageUploader().upload(selectedBitmap, new PostImageUploader.UploadCallback() {
+            @Override
+            public void onUploaded(Map<String, Object> imageFields) {
+                savePostToFirestore(imageFields, finalCaption);
+            }
+
+            @Override
+            public void onError(String error) {
+                progressBar.setVisibility(View.GONE);
+                btnPost.setEnabled(true);
+                Toast.makeText(CreatePostActivity.this, "Upload failed: " + error,
+                        Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
-    private void savePostToFirestore(String imageUrl, String caption) {
-        Map<String, Object> post = new HashMap<>();
+    private void savePostToFirestore(Map<String, Object> imageFields, String caption) {
+        Map<String, Object> post = new HashMap<>(imageFields);
         post.put("userId", currentUserId);
         post.put("username", currentUsername);
-        post.put("imageUrl", imageUrl);
         post.put("profileImageUrl", currentProfileImageUrl);
+        if (currentAuthor != null) {
+            AuthorSnapshots.put(post, currentAuthor);
+        }
         post.put("caption", caption);
-        post.put("likes", new ArrayList<String>());
+        post.put("likeCount", 0);
+        post.put("viewCount", 0);
         post.put("commentCount", 0);
-        post.put("timestamp", Timestamp.now());
-
-        db.collection(Constants.COLLECTION_POSTS)
-                .add(post)
-                .addOnSuccessListener(documentReference -> {
+        Timestamp timestamp = Timestamp.now();
+        post.put("timestamp", timestamp);
+
+        DocumentReference postRef = db.collection(Constants.COLLECTION_POSTS).document();
+        WriteBatch batch = db.batch();
+        batch.set(postRef, post);
+        UserStats.increment(batch, currentUserId, UserStats.POSTS_COUNT, 1);
+        batch.commit()
+                .addOnSuccessListener(aVoid -> {
+                    TimelineService.getInstance().fanOut(postRef.getId(), currentUserId, timestamp);
+                    StatsQueryService.getInstance().invalidatePostStats(currentUserId);
                     progressBar.setVisibility(View.GONE);
                     Toast.makeText(this, "Post uploaded successfully!", Toast.LENGTH_SHORT).show();
                     finish();
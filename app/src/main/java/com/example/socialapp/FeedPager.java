@@ -0,0 +1,622 @@
+package com.example.socialapp;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Cursor-paginated source of posts for a query ordered by "timestamp" descending.
+ * Only the newest page is kept live with a snapshot listener; older pages are
+ * fetched once with startAfter cursors as the list is scrolled.
+ *
+ * Snapshots are mapped and merged, and post text is measured, on the
+ * ingestion executor; the listener receives immutable lists on the main thread.
+ *
+ * The query may also return references to posts, e.g. timeline items; those
+ * are resolved against the posts collection before they are published. The
+ * posts behind the live window have their own listener, so their counts stay
+ * live like those of a posts query.
+ */
+public class FeedPager implements LikeController.Listener {
+
+    public interface Listener {
+        void onPostsChanged(List<Post> posts);
+        void onError(String error);
+    }
+
+    private static final String ORDER_FIELD = "timestamp";
+    private static final PostDiffCallback POST_DIFF = new PostDiffCallback();
+
+    private final Query baseQuery;
+    private final int pageSize;
+    private final Listener listener;
+
+    // Everything below is only touched on the ingestion executor
+    private final KeyedList<Post> headPosts = new KeyedList<>(Post::getId);
+    private final KeyedList<Post> olderPosts = new KeyedList<>(Post::getId);
+    private DocumentSnapshot lastHeadDocument;
+    private DocumentSnapshot lastOlderDocument;
+    private boolean headLoaded = false;
+    private boolean loadingMore = false;
+    private boolean endReached = false;
+
+    private ListenerRegistration headRegistration;
+    private volatile int generation = 0;
+    private FeedSnapshotStore snapshotStore;
+    // Optional engagement order; only touched on the ingestion executor
+    private FeedRanker ranker;
+    // Query documents are post references; ids not yet resolved are not published
+    private boolean resolvesReferences = false;
+    private final Set<String> unresolvedIds = new HashSet<>();
+    // Listeners on the posts referenced by the live window, and the ids they cover
+    private final List<ListenerRegistration> headPostRegistrations = new ArrayList<>();
+    private final Set<String> watchedIds = new HashSet<>();
+
+    public FeedPager(Query baseQuery, int pageSize, Listener listener) {
+        this.baseQuery = baseQuery;
+        this.pageSize = pageSize;
+        this.listener = listener;
+    }
+
+    /**
+     * Show the last stored feed until the first snapshot arrives, and keep
+     * the store updated with every list published after that
+     */
+    public void setSnapshotStore(FeedSnapshotStore snapshotStore) {
+        this.snapshotStore = snapshotStore;
+    }
+
+    /**
+     * Publish loaded posts in ranked order instead of timestamp order.
+     * Pages are still fetched newest first; ranking reorders what is loaded.
+     */
+    public void setRanker(FeedRanker ranker) {
+        AppExecutors.ingestion().execute(() -> this.ranker = ranker);
+    }
+
+    /**
+     * Treat the query's documents as references whose ids are post ids
+     */
+    public void setResolvesReferences(boolean resolvesReferences) {
+        AppExecutors.ingestion().execute(() -> this.resolvesReferences = resolvesReferences);
+    }
+
+    /**
+     * Re-rank the posts of authors whose ranking signals changed
+     */
+    public void rescoreAuthors(Set<String> authorIds) {
+        final int rescoreGeneration = generation;
+        Set<String> authors = new HashSet<>(authorIds);
+        AppExecutors.ingestion().execute(() -> {
+            if (rescoreGeneration != generation || ranker == null || !headLoaded) return;
+            for (String authorId : authors) {
+                ranker.rescoreAuthor(authorId);
+            }
+            publish(rescoreGeneration);
+        });
+    }
+
+    /**
+     * Drop any loaded pages and start listening to the newest page again
+     */
+    public void start() {
+        stop();
+        final int startGeneration = generation;
+        if (snapshotStore != null) {
+            // Queued ahead of the listener, so a stored feed never replaces live data
+            AppExecutors.ingestion().execute(() -> publishStored(startGeneration));
+        }
+        headRegistration = baseQuery.limit(pageSize)
+                .addSnapshotListener(AppExecutors.ingestion(), (snapshot, e) -> {
+                    if (startGeneration != generation) return;
+                    if (e != null) {
+                        postError(startGeneration, e.getMessage());
+                        return;
+                    }
+                    if (snapshot != null) {
+                        onHeadSnapshot(snapshot, startGeneration);
+                    }
+                });
+        LikeController.getInstance().addListener(this);
+    }
+
+    public void stop() {
+        generation++;
+        LikeController.getInstance().removeListener(this);
+        if (headRegistration != null) {
+            headRegistration.remove();
+            headRegistration = null;
+        }
+        AppExecutors.ingestion().execute(() -> {
+            unwatchHeadPosts();
+            headPosts.clear();
+            olderPosts.clear();
+            unresolvedIds.clear();
+            if (ranker != null) {
+                ranker.clear();
+            }
+            lastHeadDocument = null;
+            lastOlderDocument = null;
+            headLoaded = false;
+            loadingMore = false;
+            endReached = false;
+        });
+    }
+
+    private void onHeadSnapshot(QuerySnapshot snapshot, int snapshotGeneration) {
+        List<DocumentChange> changes = snapshot.getDocumentChanges();
+        if (headLoaded && changes.isEmpty()) return;
+
+        List<DocumentSnapshot> documents = snapshot.getDocuments();
+        DocumentSnapshot newLast = documents.isEmpty() ? null : documents.get(documents.size() - 1);
+
+        // Once older pages are loaded, a post pushed out of the live window by newer
+        // posts has to move to the static pages, otherwise it would fall into the gap
+        List<Post> pushedOut = new ArrayList<>();
+        boolean windowFull = lastOlderDocument != null && newLast != null && documents.size() == pageSize;
+
+        // Only added and modified documents are mapped; untouched rows keep their Post
+        List<Post> changed = new ArrayList<>();
+        List<String> removedIds = new ArrayList<>();
+        for (DocumentChange change : changes) {
+            DocumentChange.Type type = change.getType();
+            if (type == DocumentChange.Type.REMOVED) {
+                Post removed = headPosts.get(change.getOldIndex());
+                if (windowFull && sortsAfter(change.getDocument(), newLast)) {
+                    pushedOut.add(removed);
+                }
+                headPosts.remove(change.getOldIndex());
+                removedIds.add(removed.getId());
+            } else {
+                Post post = toPost(change.getDocument());
+                if (resolvesReferences && type == DocumentChange.Type.MODIFIED
+                        && !unresolvedIds.contains(post.getId())) {
+                    // A rewritten reference keeps the post it already resolved to
+                    headPosts.apply(type, change.getOldIndex(), change.getNewIndex(),
+                            headPosts.get(change.getOldIndex()));
+                    continue;
+                }
+                headPosts.apply(type, change.getOldIndex(), change.getNewIndex(), post);
+                changed.add(post);
+            }
+        }
+        // Newest first, so inserting back-to-front at 0 keeps timestamp order
+        Collections.sort(pushedOut, (a, b) -> compareTimestamps(b.getTimestamp(), a.getTimestamp()));
+        for (int i = pushedOut.size() - 1; i >= 0; i--) {
+            Post post = pushedOut.get(i);
+            if (!olderPosts.containsKey(post.getId())) {
+                olderPosts.add(0, post);
+            }
+        }
+        for (String postId : removedIds) {
+            if (!headPosts.containsKey(postId) && !olderPosts.containsKey(postId)) {
+                unresolvedIds.remove(postId);
+                if (ranker != null) {
+                    ranker.remove(postId);
+                }
+            }
+        }
+        if (resolvesReferences) {
+            // Resolved by the listener on the window's posts
+            for (Post reference : changed) {
+                unresolvedIds.add(reference.getId());
+            }
+            watchHeadPosts(snapshotGeneration);
+        } else {
+            onPostsLoaded(changed, snapshotGeneration);
+        }
+
+        lastHeadDocument = newLast;
+        if (!headLoaded) {
+            headLoaded = true;
+            endReached = documents.size() < pageSize;
+        }
+        publish(snapshotGeneration);
+    }
+
+    /**
+     * Fetch the page after the last loaded post, unless one is already in flight
+     */
+    public void loadNextPage() {
+        final int requestGeneration = generation;
+        AppExecutors.ingestion().execute(() -> {
+            if (requestGeneration != generation) return;
+            if (!headLoaded || loadingMore || endReached) return;
+
+            DocumentSnapshot cursor = lastOlderDocument != null ? lastOlderDocument : lastHeadDocument;
+            if (cursor == null) return;
+
+            loadingMore = true;
+            baseQuery.startAfter(cursor)
+                    .limit(pageSize)
+                    .get()
+                    .addOnSuccessListener(AppExecutors.ingestion(), snapshot -> {
+                        if (requestGeneration != generation) return;
+                        loadingMore = false;
+
+                        List<DocumentSnapshot> documents = snapshot.getDocuments();
+                        List<Post> page = new ArrayList<>();
+                        for (DocumentSnapshot doc : documents) {
+                            Post post = toPost(doc);
+                            if (!olderPosts.containsKey(post.getId())) {
+                                olderPosts.add(post);
+                                page.add(post);
+                            }
+                        }
+                        onPostsLoaded(page, requestGeneration);
+                        if (!documents.isEmpty()) {
+                            lastOlderDocument = documents.get(documents.size() - 1);
+                        }
+                        if (documents.size() < pageSize) {
+                            endReached = true;
+                        }
+                        publish(requestGeneration);
+                    })
+                    .addOnFailureListener(AppExecutors.ingestion(), e -> {
+                        if (requestGeneration != generation) return;
+                        loadingMore = false;
+                        postError(requestGeneration, e.getMessage());
+                    });
+        });
+    }
+
+    /**
+     * Scroll listener that requests the next page once the last visible row is
+     * within prefetchDistance rows of the end of the list
+     */
+    public RecyclerView.OnScrollListener prefetchListener(int prefetchDistance) {
+        return new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy <= 0) return;
+                RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+                if (!(layoutManager instanceof LinearLayoutManager)) return;
+
+                int lastVisible = ((LinearLayoutManager) layoutManager).findLastVisibleItemPosition();
+                int itemCount = layoutManager.getItemCount();
+                if (lastVisible != RecyclerView.NO_POSITION
+                        && lastVisible >= itemCount - 1 - prefetchDistance) {
+                    loadNextPage();
+                }
+            }
+        };
+    }
+
+    /**
+     * Prepare new or changed posts for display; references are resolved first
+     */
+    private void onPostsLoaded(List<Post> posts, int loadGeneration) {
+        if (resolvesReferences) {
+            resolveReferences(posts, loadGeneration);
+            return;
+        }
+        prepare(posts, loadGeneration);
+    }
+
+    /**
+     * Authors, text layout, rank and like state of posts about to be published
+     */
+    private void prepare(List<Post> posts, int prepareGeneration) {
+        prefetchAuthors(posts);
+        PostTextCache.getInstance().prepare(posts);
+        if (ranker != null) {
+            rank(posts);
+        }
+        resolveLikes(posts, prepareGeneration);
+    }
+
+    /**
+     * Read the referenced posts in batches of whereIn lookups and replace the
+     * references with them. References to deleted posts stay hidden.
+     */
+    private void resolveReferences(List<Post> references, int resolveGeneration) {
+        if (references.isEmpty()) return;
+        List<String> postIds = new ArrayList<>();
+        for (Post reference : references) {
+            postIds.add(reference.getId());
+            unresolvedIds.add(reference.getId());
+        }
+        List<Task<QuerySnapshot>> reads = new ArrayList<>();
+        for (int start = 0; start < postIds.size(); start += Constants.FIRESTORE_WHERE_IN_LIMIT) {
+            List<String> chunk = new ArrayList<>(postIds.subList(start,
+                    Math.min(start + Constants.FIRESTORE_WHERE_IN_LIMIT, postIds.size())));
+            reads.add(baseQuery.getFirestore().collection(Constants.COLLECTION_POSTS)
+                    .whereIn(FieldPath.documentId(), chunk)
+                    .get());
+        }
+        Tasks.whenAllComplete(reads).addOnCompleteListener(AppExecutors.ingestion(), done -> {
+            if (resolveGeneration != generation) return;
+            List<Post> resolved = new ArrayList<>();
+            String error = null;
+            for (Task<QuerySnapshot> read : reads) {
+                if (!read.isSuccessful()) {
+                    error = read.getException() != null ? read.getException().getMessage() : "Unknown error";
+                    continue;
+                }
+                for (DocumentSnapshot doc : read.getResult().getDocuments()) {
+                    Post post = toPost(doc);
+                    if (!unresolvedIds.remove(post.getId())) continue;
+                    boolean replaced = replace(headPosts, post);
+                    replaced |= replace(olderPosts, post);
+                    if (replaced) {
+                        resolved.add(post);
+                    }
+                }
+            }
+            prepare(resolved, resolveGeneration);
+            if (error != null) {
+                postError(resolveGeneration, error);
+            }
+            publish(resolveGeneration);
+        });
+    }
+
+    /**
+     * Listen to the posts referenced by the live window, in whereIn chunks.
+     * Re-registered whenever the set of posts in the window changes.
+     */
+    private void watchHeadPosts(int watchGeneration) {
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < headPosts.size(); i++) {
+            ids.add(headPosts.get(i).getId());
+        }
+        if (ids.equals(watchedIds)) return;
+        // References pushed out of the window before their post arrived are read once
+        List<Post> leftUnresolved = new ArrayList<>();
+        for (String postId : watchedIds) {
+            if (!ids.contains(postId) && unresolvedIds.contains(postId) && olderPosts.containsKey(postId)) {
+                leftUnresolved.add(olderPosts.getByKey(postId));
+            }
+        }
+        resolveReferences(leftUnresolved, watchGeneration);
+        unwatchHeadPosts();
+        watchedIds.addAll(ids);
+
+        List<String> postIds = new ArrayList<>(ids);
+        for (int start = 0; start < postIds.size(); start += Constants.FIRESTORE_WHERE_IN_LIMIT) {
+            List<String> chunk = new ArrayList<>(postIds.subList(start,
+                    Math.min(start + Constants.FIRESTORE_WHERE_IN_LIMIT, postIds.size())));
+            headPostRegistrations.add(baseQuery.getFirestore().collection(Constants.COLLECTION_POSTS)
+                    .whereIn(FieldPath.documentId(), chunk)
+                    .addSnapshotListener(AppExecutors.ingestion(), (snapshot, e) -> {
+                        if (watchGeneration != generation) return;
+                        if (e != null) {
+                            postError(watchGeneration, e.getMessage());
+                            return;
+                        }
+                        if (snapshot != null) {
+                            onHeadPostsSnapshot(snapshot, watchGeneration);
+                        }
+                    }));
+        }
+    }
+
+    private void unwatchHeadPosts() {
+        for (ListenerRegistration registration : headPostRegistrations) {
+            registration.remove();
+        }
+        headPostRegistrations.clear();
+        watchedIds.clear();
+    }
+
+    /**
+     * Resolve references still waiting for their post and replace resolved
+     * posts whose content changed. Deleted posts are taken off the timeline
+     * by TimelineService.removePost.
+     */
+    private void onHeadPostsSnapshot(QuerySnapshot snapshot, int snapshotGeneration) {
+        List<Post> updated = new ArrayList<>();
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            if (change.getType() == DocumentChange.Type.REMOVED) continue;
+            Post post = toPost(change.getDocument());
+            boolean resolving = unresolvedIds.remove(post.getId());
+            Post before = headPosts.containsKey(post.getId())
+                    ? headPosts.getByKey(post.getId()) : olderPosts.getByKey(post.getId());
+            if (before == null) continue;
+            // A re-registered listener reports every post again; unchanged ones keep their row
+            if (!resolving && POST_DIFF.areContentsTheSame(before, post)) continue;
+            replace(headPosts, post);
+            replace(olderPosts, post);
+            updated.add(post);
+        }
+        if (updated.isEmpty()) return;
+        prepare(updated, snapshotGeneration);
+        publish(snapshotGeneration);
+    }
+
+    /**
+     * Map a post with the current user's known like state. A like still in
+     * the post's legacy likes array seeds the like cache unless its state is
+     * already known.
+     */
+    private static Post toPost(DocumentSnapshot doc) {
+        Post post = ModelMapper.toPost(doc, FirebaseHelper.getCurrentUserId());
+        LikeService likeService = LikeService.getInstance();
+        if (post.isLegacyLiked() && likeService.isLikedCached(post.getId()) == null) {
+            likeService.rememberLiked(post.getId(), true);
+        }
+        post.setLikedByCurrentUser(Boolean.TRUE.equals(likeService.isLikedCached(post.getId())));
+        return post;
+    }
+
+    private static boolean replace(KeyedList<Post> posts, Post post) {
+        int position = posts.indexOf(post.getId());
+        if (position < 0) return false;
+        posts.set(position, post);
+        return true;
+    }
+
+    /**
+     * Resolve all authors of a new page in one batched read before rows bind
+     */
+    private void prefetchAuthors(List<Post> posts) {
+        if (posts.isEmpty()) return;
+        Set<String> authorIds = new HashSet<>();
+        for (Post post : posts) {
+            authorIds.add(post.getUserId());
+        }
+        UserProfileCache.getInstance().prefetch(authorIds);
+    }
+
+    /**
+     * Look up the current user's like state for new posts in one batched query
+     * and republish the rows whose state differs from what was mapped
+     */
+    private void resolveLikes(List<Post> posts, int resolveGeneration) {
+        if (posts.isEmpty()) return;
+        List<String> postIds = new ArrayList<>();
+        for (Post post : posts) {
+            postIds.add(post.getId());
+        }
+        LikeService.getInstance().loadLikedPostIds(postIds, AppExecutors.ingestion(), likedIds -> {
+            if (resolveGeneration != generation) return;
+            boolean changed = false;
+            for (String postId : postIds) {
+                changed |= updateLiked(headPosts, postId, likedIds.contains(postId));
+                changed |= updateLiked(olderPosts, postId, likedIds.contains(postId));
+            }
+            if (changed) {
+                publish(resolveGeneration);
+            }
+        });
+    }
+
+    private static boolean updateLiked(KeyedList<Post> posts, String postId, boolean liked) {
+        int position = posts.indexOf(postId);
+        if (position < 0) return false;
+        Post post = posts.get(position);
+        if (post.isLikedByCurrentUser() == liked) return false;
+        posts.set(position, post.withLikedByCurrentUser(liked));
+        return true;
+    }
+
+    @Override
+    public void onLikeStateChanged(String postId, String error) {
+        // Republish so the pending like state is applied to the published rows
+        final int likeGeneration = generation;
+        AppExecutors.ingestion().execute(() -> {
+            if (likeGeneration != generation) return;
+            if (headPosts.containsKey(postId) || olderPosts.containsKey(postId)) {
+                publish(likeGeneration);
+            }
+        });
+    }
+
+    /**
+     * Drop a deleted post from the loaded older pages, which no listener
+     * watches; the live window drops its own deletions
+     */
+    public void removePost(String postId) {
+        final int removeGeneration = generation;
+        AppExecutors.ingestion().execute(() -> {
+            if (removeGeneration != generation) return;
+            int position = olderPosts.indexOf(postId);
+            if (position < 0) return;
+            olderPosts.remove(position);
+            unresolvedIds.remove(postId);
+            if (ranker != null) {
+                ranker.remove(postId);
+            }
+            publish(removeGeneration);
+        });
+    }
+
+    private void publish(int publishGeneration) {
+        LikeController likeController = LikeController.getInstance();
+        List<Post> posts = new ArrayList<>(headPosts.size() + olderPosts.size());
+        if (ranker != null) {
+            for (int i = 0; i < ranker.size(); i++) {
+                String postId = ranker.idAt(i);
+                Post post = headPosts.containsKey(postId) ? headPosts.getByKey(postId) : olderPosts.getByKey(postId);
+                if (post != null) {
+                    posts.add(likeController.apply(post));
+                }
+            }
+        } else {
+            addInTimestampOrder(posts, likeController);
+        }
+        List<Post> result = Collections.unmodifiableList(posts);
+        if (snapshotStore != null) {
+            snapshotStore.save(result);
+        }
+        AppExecutors.mainThread().execute(() -> {
+            if (publishGeneration == generation) {
+                listener.onPostsChanged(result);
+            }
+        });
+    }
+
+    private void addInTimestampOrder(List<Post> posts, LikeController likeController) {
+        for (int i = 0; i < headPosts.size(); i++) {
+            Post post = headPosts.get(i);
+            if (!unresolvedIds.contains(post.getId())) {
+                posts.add(likeController.apply(post));
+            }
+        }
+        for (int i = 0; i < olderPosts.size(); i++) {
+            Post post = olderPosts.get(i);
+            // A deletion in the live window refills it with the first older post
+            if (!headPosts.containsKey(post.getId()) && !unresolvedIds.contains(post.getId())) {
+                posts.add(likeController.apply(post));
+            }
+        }
+    }
+
+    private void rank(List<Post> posts) {
+        for (Post post : posts) {
+            long createdAt = post.getTimestamp() != null ? post.getTimestamp().toDate().getTime() : 0;
+            ranker.upsert(new FeedRanker.Candidate(post.getId(), post.getUserId(), createdAt,
+                    post.getLikeCount(), post.getCommentCount()));
+        }
+    }
+
+    private void publishStored(int storedGeneration) {
+        if (storedGeneration != generation || headLoaded) return;
+        List<Post> stored = snapshotStore.load();
+        if (stored.isEmpty()) return;
+        PostTextCache.getInstance().prepare(stored);
+
+        List<Post> result = Collections.unmodifiableList(stored);
+        AppExecutors.mainThread().execute(() -> {
+            if (storedGeneration == generation) {
+                listener.onPostsChanged(result);
+            }
+        });
+    }
+
+    private void postError(int errorGeneration, String error) {
+        AppExecutors.mainThread().execute(() -> {
+            if (errorGeneration == generation) {
+                listener.onError(error);
+            }
+        });
+    }
+
+    private static boolean sortsAfter(DocumentSnapshot doc, DocumentSnapshot last) {
+        Timestamp docTime = doc.getTimestamp(ORDER_FIELD);
+        Timestamp lastTime = last.getTimestamp(ORDER_FIELD);
+        if (docTime == null || lastTime == null) return false;
+        return docTime.compareTo(lastTime) <= 0;
+    }
+
+    private static int compareTimestamps(Timestamp a, Timestamp b) {
+        if (a == null || b == null) return a == b ? 0 : (a == null ? -1 : 1);
+        return a.compareTo(b);
+    }
+}
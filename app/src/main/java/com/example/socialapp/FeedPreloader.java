@@ -0,0 +1,85 @@
+package com.example.socialapp;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.bumptech.glide.RequestBuilder;
+
+/**
+ * Starts image loads for the rows about to scroll into view, ahead of the
+ * direction of travel, so they are in Glide's memory cache when bound.
+ * Each position is requested once per pass in the same direction.
+ */
+public class FeedPreloader extends RecyclerView.OnScrollListener {
+
+    public interface RequestProvider {
+        /**
+         * The same request the adapter will use to bind this position, or null
+         */
+        @Nullable
+        RequestBuilder<?> getPreloadRequest(int position);
+    }
+
+    private final RequestProvider provider;
+    private final int maxPreload;
+
+    private boolean scrollingDown = true;
+    private int preloadedStart = -1;
+    private int preloadedEnd = -1;
+
+    public FeedPreloader(RequestProvider provider, int maxPreload) {
+        this.provider = provider;
+        this.maxPreload = maxPreload;
+    }
+
+    /**
+     * Forget what has been requested, e.g. after the list was reloaded
+     */
+    public void reset() {
+        preloadedStart = -1;
+        preloadedEnd = -1;
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        if (!(layoutManager instanceof LinearLayoutManager)) return;
+
+        LinearLayoutManager linearLayoutManager = (LinearLayoutManager) layoutManager;
+        int firstVisible = linearLayoutManager.findFirstVisibleItemPosition();
+        int lastVisible = linearLayoutManager.findLastVisibleItemPosition();
+        if (firstVisible == RecyclerView.NO_POSITION) return;
+
+        boolean down = dy >= 0;
+        if (down != scrollingDown) {
+            scrollingDown = down;
+            reset();
+        }
+
+        int itemCount = layoutManager.getItemCount();
+        if (down) {
+            int start = Math.max(lastVisible + 1, preloadedEnd);
+            int end = Math.min(itemCount, lastVisible + 1 + maxPreload);
+            for (int position = start; position < end; position++) {
+                preload(position);
+            }
+            preloadedEnd = Math.max(preloadedEnd, end);
+        } else {
+            int end = preloadedStart < 0 ? firstVisible : Math.min(firstVisible, preloadedStart);
+            int start = Math.max(0, firstVisible - maxPreload);
+            for (int position = end - 1; position >= start; position--) {
+                preload(position);
+            }
+            preloadedStart = preloadedStart < 0 ? start : Math.min(preloadedStart, start);
+        }
+    }
+
+    private void preload(int position) {
+        RequestBuilder<?> request = provider.getPreloadRequest(position);
+        if (request != null) {
+            request.preload();
+        }
+    }
+}
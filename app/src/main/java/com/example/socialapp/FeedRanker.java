@@ -0,0 +1,190 @@
+package com.example.socialapp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps feed candidates ordered by engagement score and updates the order
+ * one candidate at a time, with a binary search instead of a full sort.
+ *
+ * The score is log2(1 + engagement) + createdAt / RECENCY_HALF_LIFE, plus
+ * boosts for followed authors and authors the user interacts with. Adding
+ * age linearly to a log is the same as dividing engagement by 2^(age / half
+ * life), i.e. an engagement velocity with exponential decay, but it does not
+ * change as time passes, so the order never has to be rebuilt because of the clock.
+ *
+ * Not thread safe; the feed only touches it on the ingestion executor.
+ */
+public class FeedRanker {
+
+    /**
+     * Personal signals; answers may change, after which the affected
+     * authors are passed to rescoreAuthor()
+     */
+    public interface Signals {
+        boolean isFollowing(String authorId);
+
+        /**
+         * How many times the user liked or commented on this author's posts
+         */
+        int interactionCount(String authorId);
+    }
+
+    public static class Candidate {
+        final String id;
+        final String authorId;
+        final long createdAtMillis;
+        final int likeCount;
+        final int commentCount;
+
+        public Candidate(String id, String authorId, long createdAtMillis, int likeCount, int commentCount) {
+            this.id = id;
+            this.authorId = authorId;
+            this.createdAtMillis = createdAtMillis;
+            this.likeCount = likeCount;
+            this.commentCount = commentCount;
+        }
+    }
+
+    static final double RECENCY_HALF_LIFE_MILLIS = 6 * 60 * 60 * 1000.0;
+    static final double COMMENT_WEIGHT = 3.0;
+    // Worth as much as being this many half lives newer
+    static final double FOLLOW_BOOST = 2.0;
+    static final double MAX_INTERACTION_BOOST = 1.5;
+
+    private static class Entry {
+        final Candidate candidate;
+        final double score;
+
+        Entry(Candidate candidate, double score) {
+            this.candidate = candidate;
+            this.score = score;
+        }
+    }
+
+    private final Signals signals;
+    // Highest score first; equal scores by id so every entry has one exact position
+    private final ArrayList<Entry> ranked = new ArrayList<>();
+    private final Map<String, Entry> byId = new HashMap<>();
+    private final Map<String, Set<String>> idsByAuthor = new HashMap<>();
+
+    public FeedRanker(Signals signals) {
+        this.signals = signals;
+    }
+
+    public int size() {
+        return ranked.size();
+    }
+
+    public String idAt(int position) {
+        return ranked.get(position).candidate.id;
+    }
+
+    public List<String> rankedIds() {
+        List<String> ids = new ArrayList<>(ranked.size());
+        for (Entry entry : ranked) {
+            ids.add(entry.candidate.id);
+        }
+        return Collections.unmodifiableList(ids);
+    }
+
+    /**
+     * Add a candidate or replace the one with the same id; returns its new position
+     */
+    public int upsert(Candidate candidate) {
+        removeEntry(candidate.id);
+        Entry entry = new Entry(candidate, score(candidate));
+        int position = insertionPoint(entry);
+        ranked.add(position, entry);
+        byId.put(candidate.id, entry);
+        Set<String> authorIds = idsByAuthor.get(candidate.authorId);
+        if (authorIds == null) {
+            authorIds = new HashSet<>();
+            idsByAuthor.put(candidate.authorId, authorIds);
+        }
+        authorIds.add(candidate.id);
+        return position;
+    }
+
+    public boolean remove(String id) {
+        return removeEntry(id) != null;
+    }
+
+    public void clear() {
+        ranked.clear();
+        byId.clear();
+        idsByAuthor.clear();
+    }
+
+    /**
+     * Re-place the author's candidates after a signal about them changed
+     */
+    public void rescoreAuthor(String authorId) {
+        Set<String> ids = idsByAuthor.get(authorId);
+        if (ids == null) return;
+        for (String id : new ArrayList<>(ids)) {
+            upsert(byId.get(id).candidate);
+        }
+    }
+
+    double score(Candidate candidate) {
+        double engagement = candidate.likeCount + COMMENT_WEIGHT * candidate.commentCount;
+        double score = log2(1 + engagement) + candidate.createdAtMillis / RECENCY_HALF_LIFE_MILLIS;
+        if (candidate.authorId != null) {
+            if (signals.isFollowing(candidate.authorId)) {
+                score += FOLLOW_BOOST;
+            }
+            int interactions = signals.interactionCount(candidate.authorId);
+            if (interactions > 0) {
+                score += Math.min(MAX_INTERACTION_BOOST, log2(1 + interactions) / 2);
+            }
+        }
+        return score;
+    }
+
+    private Entry removeEntry(String id) {
+        Entry entry = byId.remove(id);
+        if (entry == null) return null;
+        // The entry's own score and id find its exact position
+        ranked.remove(insertionPoint(entry));
+        Set<String> authorIds = idsByAuthor.get(entry.candidate.authorId);
+        if (authorIds != null) {
+            authorIds.remove(id);
+            if (authorIds.isEmpty()) {
+                idsByAuthor.remove(entry.candidate.authorId);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Index of the first entry that does not rank ahead of the given one
+     */
+    private int insertionPoint(Entry entry) {
+        int low = 0;
+        int high = ranked.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ranksBefore(ranked.get(mid), entry)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static boolean ranksBefore(Entry a, Entry b) {
+        if (a.score != b.score) return a.score > b.score;
+        return a.candidate.id.compareTo(b.candidate.id) < 0;
+    }
+
+    private static double log2(double value) {
+        return Math.log(value) / Math.log(2);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.socialapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.google.android.gms.tasks.Task;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The current user's ranking signals: which authors they follow, from
+ * FollowService, and how often they liked or commented on each author,
+ * kept in preferences.
+ */
+public class FeedSignals implements FeedRanker.Signals {
+
+    public interface Listener {
+        /**
+         * Signals about these authors changed; called on the main thread
+         */
+        void onSignalsChanged(Set<String> authorIds);
+    }
+
+    private static final String PREFS_NAME = "feed_signals";
+    private static FeedSignals instance;
+
+    private final SharedPreferences preferences;
+    private final FollowService followService;
+    private final Map<String, Integer> interactions = new ConcurrentHashMap<>();
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private FeedSignals(Context context) {
+        preferences = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        for (Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+            if (entry.getValue() instanceof Integer) {
+                interactions.put(entry.getKey(), (Integer) entry.getValue());
+            }
+        }
+        followService = FollowService.getInstance(context);
+        followService.addListener(this::notifyChanged);
+    }
+
+    public static synchronized FeedSignals getInstance(Context context) {
+        if (instance == null) {
+            instance = new FeedSignals(context);
+        }
+        return instance;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Refresh the followed authors; the task completes with their ids
+     */
+    public Task<Set<String>> loadFollowing() {
+        return followService.load();
+    }
+
+    /**
+     * The user liked or commented on a post by this author
+     */
+    public void recordInteraction(String authorId) {
+        if (authorId == null) return;
+        int count = interactions.containsKey(authorId) ? interactions.get(authorId) + 1 : 1;
+        interactions.put(authorId, count);
+        preferences.edit().putInt(authorId, count).apply();
+        notifyChanged(Collections.singleton(authorId));
+    }
+
+    public void clear() {
+        interactions.clear();
+        preferences.edit().clear().apply();
+    }
+
+    @Override
+    public boolean isFollowing(String authorId) {
+        return followService.isFollowing(authorId);
+    }
+
+    @Override
+    public int interactionCount(String authorId) {
+        Integer count = interactions.get(authorId);
+        return count != null ? count : 0;
+    }
+
+    private void notifyChanged(Set<String> authorIds) {
+        if (authorIds.isEmpty()) return;
+        for (Listener listener : listeners) {
+            listener.onSignalsChanged(authorIds);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.socialapp;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+import com.google.firebase.Timestamp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * On-disk copy of the last rendered feed, so HomeActivity can show posts on
+ * a cold start before the first snapshot arrives. Only the top
+ * FEED_SNAPSHOT_MAX_POSTS posts of the feed are kept, and only rows whose
+ * Post changed since the last save are written, on the disk executor.
+ * The table is a cache: a schema change simply drops it.
+ */
+public class FeedSnapshotStore extends SQLiteOpenHelper {
+
+    private static final String TAG = "FeedSnapshotStore";
+    private static final String DATABASE_NAME = "feed_snapshot.db";
+    private static final int SCHEMA_VERSION = 3;
+
+    private static final String TABLE_POSTS = "feed_posts";
+    private static final String COL_ID = "id";
+    private static final String COL_USER_ID = "user_id";
+    private static final String COL_USERNAME = "username";
+    private static final String COL_AUTHOR_IMAGE_URL = "author_image_url";
+    private static final String COL_IMAGE_URL = "image_url";
+    private static final String COL_FEED_URL = "feed_url";
+    private static final String COL_GRID_URL = "grid_url";
+    private static final String COL_THUMB_URL = "thumb_url";
+    private static final String COL_IMAGE_WIDTH = "image_width";
+    private static final String COL_IMAGE_HEIGHT = "image_height";
+    private static final String COL_CAPTION = "caption";
+    private static final String COL_LIKE_COUNT = "like_count";
+    private static final String COL_COMMENT_COUNT = "comment_count";
+    private static final String COL_VIEW_COUNT = "view_count";
+    private static final String COL_TIMESTAMP_SECONDS = "timestamp_seconds";
+    private static final String COL_TIMESTAMP_NANOS = "timestamp_nanos";
+
+    private static FeedSnapshotStore instance;
+
+    // Last saved Post per id; only touched on the disk executor
+    private final Map<String, Post> saved = new HashMap<>();
+
+    private FeedSnapshotStore(Context context) {
+        super(context, DATABASE_NAME, null, SCHEMA_VERSION);
+    }
+
+    public static synchronized FeedSnapshotStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new FeedSnapshotStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_POSTS + " ("
+                + COL_ID + " TEXT PRIMARY KEY, "
+                + COL_USER_ID + " TEXT, "
+                + COL_USERNAME + " TEXT, "
+                + COL_AUTHOR_IMAGE_URL + " TEXT, "
+                + COL_IMAGE_URL + " TEXT, "
+                + COL_FEED_URL + " TEXT, "
+                + COL_GRID_URL + " TEXT, "
+                + COL_THUMB_URL + " TEXT, "
+                + COL_IMAGE_WIDTH + " INTEGER, "
+                + COL_IMAGE_HEIGHT + " INTEGER, "
+                + COL_CAPTION + " TEXT, "
+                + COL_LIKE_COUNT + " INTEGER, "
+                + COL_COMMENT_COUNT + " INTEGER, "
+                + COL_VIEW_COUNT + " INTEGER, "
+                + COL_TIMESTAMP_SECONDS + " INTEGER, "
+                + COL_TIMESTAMP_NANOS + " INTEGER)");
+        db.execSQL("CREATE INDEX idx_" + TABLE_POSTS + "_timestamp ON " + TABLE_POSTS
+                + " (" + COL_TIMESTAMP_SECONDS + " DESC, " + COL_TIMESTAMP_NANOS + " DESC)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_POSTS);
+        onCreate(db);
+    }
+
+    @Override
+    public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        onUpgrade(db, oldVersion, newVersion);
+    }
+
+    /**
+     * Stored posts, newest first. Blocking; call off the main thread.
+     */
+    public List<Post> load() {
+        List<Post> posts = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query(TABLE_POSTS, null, null, null, null, null,
+                COL_TIMESTAMP_SECONDS + " DESC, " + COL_TIMESTAMP_NANOS + " DESC",
+                String.valueOf(Constants.FEED_SNAPSHOT_MAX_POSTS))) {
+            while (cursor.moveToNext()) {
+                posts.add(toPost(cursor));
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Could not read feed snapshot: " + e.getMessage());
+        }
+        return posts;
+    }
+
+    /**
+     * Record the feed as just rendered: new or changed posts among the top
+     * FEED_SNAPSHOT_MAX_POSTS are written, and posts that left the feed or
+     * moved below that are dropped
+     */
+    public void save(List<Post> posts) {
+        List<Post> snapshot = new ArrayList<>(
+                posts.subList(0, Math.min(posts.size(), Constants.FEED_SNAPSHOT_MAX_POSTS)));
+        AppExecutors.diskIO().execute(() -> {
+            List<Post> changed = new ArrayList<>();
+            Set<String> current = new HashSet<>();
+            for (Post post : snapshot) {
+                current.add(post.getId());
+                // Published posts are immutable, so an unchanged row keeps its instance
+                if (saved.get(post.getId()) != post) {
+                    changed.add(post);
+                }
+            }
+            List<String> removed = new ArrayList<>();
+            for (String id : saved.keySet()) {
+                if (!current.contains(id)) {
+                    removed.add(id);
+                }
+            }
+            if (changed.isEmpty() && removed.isEmpty()) return;
+            // Nothing saved yet in this process: the table still holds the last session's feed
+            boolean replaceAll = saved.isEmpty();
+
+            try {
+                SQLiteDatabase db = getWritableDatabase();
+                db.beginTransaction();
+                try {
+                    if (replaceAll) {
+                        db.delete(TABLE_POSTS, null, null);
+                    }
+                    for (Post post : changed) {
+                        db.insertWithOnConflict(TABLE_POSTS, null, toValues(post),
+                                SQLiteDatabase.CONFLICT_REPLACE);
+                        saved.put(post.getId(), post);
+                    }
+                    for (String id : removed) {
+                        db.delete(TABLE_POSTS, COL_ID + " = ?", new String[] { id });
+                        saved.remove(id);
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "Could not write feed snapshot: " + e.getMessage());
+            }
+        });
+    }
+
+    public void clear() {
+        AppExecutors.diskIO().execute(() -> {
+            saved.clear();
+            try {
+                getWritableDatabase().delete(TABLE_POSTS, null, null);
+            } catch (Exception e) {
+                Log.w(TAG, "Could not clear feed snapshot: " + e.getMessage());
+            }
+        });
+    }
+
+    private static ContentValues toValues(Post post) {
+        ContentValues values = new ContentValues();
+        values.put(COL_ID, post.getId());
+        values.put(COL_USER_ID, post.getUserId());
+        values.put(COL_USERNAME, post.getUsername());
+        values.put(COL_AUTHOR_IMAGE_URL, authorImageUrl(post));
+        values.put(COL_IMAGE_URL, post.getImageUrl());
+        values.put(COL_FEED_URL, post.getFeedUrl());
+        values.put(COL_GRID_URL, post.getGridUrl());
+        values.put(COL_THUMB_URL, post.getThumbUrl());
+        values.put(COL_IMAGE_WIDTH, post.getImageWidth());
+        values.put(COL_IMAGE_HEIGHT, post.getImageHeight());
+        values.put(COL_CAPTION, post.getCaption());
+        values.put(COL_LIKE_COUNT, post.getLikeCount());
+        values.put(COL_COMMENT_COUNT, post.getCommentCount());
+        values.put(COL_VIEW_COUNT, post.getViewCount());
+        if (post.getTimestamp() != null) {
+            values.put(COL_TIMESTAMP_SECONDS, post.getTimestamp().getSeconds());
+            values.put(COL_TIMESTAMP_NANOS, post.getTimestamp().getNanoseconds());
+        }
+        return values;
+    }
+
+    /**
+     * The author's current picture from the profile cache, falling back to the
+     * one copied onto the post when it was written
+     */
+    private static String authorImageUrl(Post post) {
+        User author = UserProfileCache.getInstance().peek(post.getUserId());
+        if (author != null && author.getProfileImageUrl() != null) {
+            return author.getProfileImageUrl();
+        }
+        return post.getProfileImageUrl();
+    }
+
+    private static Post toPost(Cursor cursor) {
+        Post post = new Post();
+        post.setId(cursor.getString(cursor.getColumnIndexOrThrow(COL_ID)));
+        post.setUserId(cursor.getString(cursor.getColumnIndexOrThrow(COL_USER_ID)));
+        post.setUsername(cursor.getString(cursor.getColumnIndexOrThrow(COL_USERNAME)));
+        post.setProfileImageUrl(cursor.getString(cursor.getColumnIndexOrThrow(COL_AUTHOR_IMAGE_URL)));
+        post.setImageUrl(cursor.getString(cursor.getColumnIndexOrThrow(COL_IMAGE_URL)));
+        post.setFeedUrl(cursor.getString(cursor.getColumnIndexOrThrow(COL_FEED_URL)));
+        post.setGridUrl(cursor.getString(cursor.getColumnIndexOrThrow(COL_GRID_URL)));
+        post.setThumbUrl(cursor.getString(cursor.getColumnIndexOrThrow(COL_THUMB_URL)));
+        post.setImageWidth(cursor.getInt(cursor.getColumnIndexOrThrow(COL_IMAGE_WIDTH)));
+        post.setImageHeight(cursor.getInt(cursor.getColumnIndexOrThrow(COL_IMAGE_HEIGHT)));
+        post.setCaption(cursor.getString(cursor.getColumnIndexOrThrow(COL_CAPTION)));
+        post.setLikeCount(cursor.getInt(cursor.getColumnIndexOrThrow(COL_LIKE_COUNT)));
+        post.setCommentCount(cursor.getInt(cursor.getColumnIndexOrThrow(COL_COMMENT_COUNT)));
+        post.setViewCount(cursor.getInt(cursor.getColumnIndexOrThrow(COL_VIEW_COUNT)));
+        int secondsColumn = cursor.getColumnIndexOrThrow(COL_TIMESTAMP_SECONDS);
+        if (!cursor.isNull(secondsColumn)) {
+            post.setTimestamp(new Timestamp(cursor.getLong(secondsColumn),
+                    cursor.getInt(cursor.getColumnIndexOrThrow(COL_TIMESTAMP_NANOS))));
+        }
+        post.setLikedByCurrentUser(Boolean.TRUE.equals(LikeService.getInstance().isLikedCached(post.getId())));
+        return post;
+    }
+}
@@ -1,10 +1,20 @@
 package com.example.socialapp;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class FirebaseHelper {
+    private static final String TAG = "FirebaseHelper";
     private static FirebaseFirestore db = FirebaseFirestore.getInstance();
     private static FirebaseAuth auth = FirebaseAuth.getInstance();
 
@@ -20,28 +30,114 @@ public class FirebaseHelper {
             return;
         }
 
-        db.collection("users").document(firebaseUser.getUid())
+        UserProfileCache.getInstance().get(firebaseUser.getUid(), (user, error) -> {
+            if (error != null) {
+                callback.onError(error);
+            } else if (user != null) {
+                callback.onSuccess(user);
+            } else {
+                // Create new user document
+                User newUser = new User();
+                newUser.setUserId(firebaseUser.getUid());
+                newUser.setPhoneNumber(firebaseUser.getPhoneNumber());
+                newUser.setUsername("User_" + firebaseUser.getUid().substring(0, 6));
+
+                db.collection("users").document(firebaseUser.getUid())
+                        .set(newUser)
+                        .addOnSuccessListener(aVoid -> {
+                            UserProfileCache.getInstance().put(newUser);
+                            callback.onSuccess(newUser);
+                        })
+                        .addOnFailureListener(e -> callback.onError(e.getMessage()));
+            }
+        });
+    }
+
+    /**
+     * Delete a post, taking it, its likes and its comments off the author's
+     * stats in the same transaction, then clean up what hangs off it. The post
+     * may be null when it was never loaded; its images are then left in Storage.
+     */
+    public static Task<Void> deletePost(String postId, Post post) {
+        DocumentReference postRef = db.collection(Constants.COLLECTION_POSTS).document(postId);
+        return db.runTransaction(transaction -> {
+            DocumentSnapshot doc = transaction.get(postRef);
+            if (!doc.exists()) return null;
+            Post deleted = ModelMapper.toPost(doc);
+            ShardedCounter counter = ShardedCounter.getInstance();
+            long likes = deleted.getLikeCount() + counter.shardTotal(transaction, postRef, "likeCount");
+            long comments = deleted.getCommentCount() + counter.shardTotal(transaction, postRef, "commentCount");
+            String authorId = ModelMapper.getString(doc, "userId");
+            transaction.delete(postRef);
+            UserStats.increment(transaction, authorId, UserStats.POSTS_COUNT, -1);
+            UserStats.increment(transaction, authorId, UserStats.LIKES_RECEIVED, -likes);
+            UserStats.increment(transaction, authorId, UserStats.COMMENTS_RECEIVED, -comments);
+            return null;
+        }).addOnSuccessListener(result -> {
+            // Delete image renditions from Storage
+            if (post != null) {
+                PostImageUploader.deleteRenditions(post);
+                StatsQueryService.getInstance().invalidatePostStats(post.getUserId());
+            }
+            TimelineService.getInstance().removePost(postId);
+
+            deleteComments(postRef);
+            deleteLikes(postRef);
+
+            ShardedCounter counter = ShardedCounter.getInstance();
+            counter.deleteShards(postRef, "likeCount");
+            counter.deleteShards(postRef, "commentCount");
+            counter.deleteShards(postRef, "viewCount");
+        });
+    }
+
+    /**
+     * Delete the comments under a deleted post a page at a time, taking each
+     * page off its commenters' stats in the same batch. The likes and like
+     * counter of every comment go with it.
+     */
+    private static void deleteComments(DocumentReference postRef) {
+        // A page costs one delete per comment and at most one stats update per commenter
+        postRef.collection(Constants.COLLECTION_COMMENTS)
+                .limit(Constants.FIRESTORE_BATCH_LIMIT / 2)
+                .get()
+                .addOnSuccessListener(AppExecutors.background(), querySnapshot -> {
+                    if (querySnapshot.isEmpty()) return;
+                    WriteBatch batch = db.batch();
+                    Map<String, Long> commentsByUser = new HashMap<>();
+                    for (DocumentSnapshot comment : querySnapshot.getDocuments()) {
+                        batch.delete(comment.getReference());
+                        String userId = ModelMapper.getString(comment, "userId");
+                        if (userId != null) {
+                            commentsByUser.merge(userId, 1L, Long::sum);
+                        }
+                        deleteLikes(comment.getReference());
+                        ShardedCounter.getInstance().deleteShards(comment.getReference(), "likeCount");
+                    }
+                    for (Map.Entry<String, Long> entry : commentsByUser.entrySet()) {
+                        UserStats.increment(batch, entry.getKey(), UserStats.COMMENTS_MADE, -entry.getValue());
+                    }
+                    batch.commit()
+                            .addOnSuccessListener(aVoid -> deleteComments(postRef))
+                            .addOnFailureListener(e -> Log.w(TAG, "Deleting comments failed: " + e.getMessage()));
+                })
+                .addOnFailureListener(e -> Log.w(TAG, "Reading comments to delete failed: " + e.getMessage()));
+    }
+
+    /**
+     * Delete the like memberships under a post or comment in batches
+     */
+    private static void deleteLikes(DocumentReference targetRef) {
+        targetRef.collection(Constants.COLLECTION_LIKES)
                 .get()
-                .addOnCompleteListener(task -> {
-                    if (task.isSuccessful()) {
-                        DocumentSnapshot document = task.getResult();
-                        if (document.exists()) {
-                            User user = document.toObject(User.class);
-                            callback.onSuccess(user);
-                        } else {
-                            // Create new user document
-                            User newUser = new User();
-                            newUser.setUserId(firebaseUser.getUid());
-                            newUser.setPhoneNumber(firebaseUser.getPhoneNumber());
-                            newUser.setUsername("User_" + firebaseUser.getUid().substring(0, 6));
-
-                            db.collection("users").document(firebaseUser.getUid())
-                                    .set(newUser)
-                                    .addOnSuccessListener(aVoid -> callback.onSuccess(newUser))
-                                    .addOnFailureListener(e -> callback.onError(e.getMessage()));
+                .addOnSuccessListener(AppExecutors.background(), querySnapshot -> {
+                    List<DocumentSnapshot> likes = querySnapshot.getDocuments();
+                    for (int start = 0; start < likes.size(); start += Constants.FIRESTORE_BATCH_LIMIT) {
+                        WriteBatch batch = db.batch();
+                        for (DocumentSnapshot like : likes.subList(start, Math.min(start + Constants.FIRESTORE_BATCH_LIMIT, likes.size()))) {
+                            batch.delete(like.getReference());
                         }
-                    } else {
-                        callback.onError(task.getException().getMessage());
+                        batch.commit();
                     }
                 });
     }
@@ -0,0 +1,47 @@
+package com.example.socialapp;
+
+/**
+ * What a follow or unfollow writes, given which of its two index documents
+ * already exist. Each counter moves with the documents of its own index:
+ * followersCount with followers/{target}/userFollowers and followingCount
+ * with following/{follower}/userFollowing.
+ *
+ * Follows made before the following index existed have only the follower
+ * document, with no fields; following again repairs them instead of being
+ * treated as a repeat.
+ */
+public class FollowEdges {
+
+    public final boolean writeEdges;
+    public final boolean deleteEdges;
+    public final long followersDelta;
+    public final long followingDelta;
+
+    private FollowEdges(boolean writeEdges, boolean deleteEdges, long followersDelta, long followingDelta) {
+        this.writeEdges = writeEdges;
+        this.deleteEdges = deleteEdges;
+        this.followersDelta = followersDelta;
+        this.followingDelta = followingDelta;
+    }
+
+    public static FollowEdges of(boolean followerExists, boolean followingExists, boolean follow) {
+        if (follow) {
+            return new FollowEdges(!followerExists || !followingExists, false,
+                    followerExists ? 0 : 1, followingExists ? 0 : 1);
+        }
+        return new FollowEdges(false, followerExists || followingExists,
+                followerExists ? -1 : 0, followingExists ? -1 : 0);
+    }
+
+    public boolean changesAnything() {
+        return writeEdges || deleteEdges;
+    }
+
+    /**
+     * Full path of the follower document, as collection group queries on
+     * userFollowers match document ids by path
+     */
+    public static String followerPath(String targetUserId, String followerId) {
+        return "followers/" + targetUserId + "/userFollowers/" + followerId;
+    }
+}
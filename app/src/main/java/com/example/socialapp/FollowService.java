@@ -0,0 +1,321 @@
+package com.example.socialapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The follow graph, stored as two symmetric indexes:
+ * followers/{target}/userFollowers/{follower} and
+ * following/{follower}/userFollowing/{target}. A follow or unfollow writes
+ * both documents and both users' counters in one transaction.
+ *
+ * Follows made before the following index existed only have an empty
+ * follower document; they are copied to the following index once per user,
+ * found by document path since they carry no fields to query.
+ *
+ * The uids the current user follows are kept in memory and in preferences,
+ * so follow state is a lookup without reads once loaded.
+ */
+public class FollowService {
+
+    public interface Listener {
+        /**
+         * The current user started or stopped following these users
+         */
+        void onFollowingChanged(Set<String> userIds);
+    }
+
+    private static final String TAG = "FollowService";
+    private static final String PREFS_NAME = "follow_graph";
+    private static final String KEY_FOLLOWING = "following";
+    private static final String KEY_OWNER = "owner";
+    private static final String KEY_MIGRATED = "legacyFollowsMigrated";
+    private static FollowService instance;
+
+    private final FirebaseFirestore db;
+    private final SharedPreferences preferences;
+    private final Set<String> followed = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean loaded = false;
+    private Task<Void> migration;
+
+    private FollowService(Context context) {
+        db = FirebaseFirestore.getInstance();
+        preferences = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        String owner = preferences.getString(KEY_OWNER, null);
+        if (owner != null && owner.equals(FirebaseHelper.getCurrentUserId())) {
+            followed.addAll(preferences.getStringSet(KEY_FOLLOWING, Collections.emptySet()));
+            loaded = true;
+        }
+    }
+
+    public static synchronized FollowService getInstance(Context context) {
+        if (instance == null) {
+            instance = new FollowService(context);
+        }
+        return instance;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Whether the followed set has been read at least once for this user
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public boolean isFollowing(String userId) {
+        return followed.contains(userId);
+    }
+
+    public Set<String> followedIds() {
+        return Collections.unmodifiableSet(new HashSet<>(followed));
+    }
+
+    /**
+     * Refresh the followed set from the following index; the task completes
+     * with the followed uids
+     */
+    public Task<Set<String>> load() {
+        String currentUserId = FirebaseHelper.getCurrentUserId();
+        if (currentUserId == null) return Tasks.forResult(Collections.emptySet());
+        // A failed migration is retried on the next load; the index is read either way
+        return migrateLegacyFollows()
+                .continueWithTask(migrated -> db.collection("following").document(currentUserId)
+                        .collection("userFollowing").get())
+                .continueWith(task -> {
+                    Set<String> loadedIds = new HashSet<>();
+                    for (DocumentSnapshot doc : task.getResult().getDocuments()) {
+                        loadedIds.add(doc.getId());
+                    }
+                    Set<String> changed = new HashSet<>();
+                    for (String userId : loadedIds) {
+                        if (!followed.contains(userId)) changed.add(userId);
+                    }
+                    for (String userId : followed) {
+                        if (!loadedIds.contains(userId)) changed.add(userId);
+                    }
+                    followed.retainAll(loadedIds);
+                    followed.addAll(loadedIds);
+                    loaded = true;
+                    persist(currentUserId);
+                    notifyChanged(changed);
+                    return Collections.unmodifiableSet(loadedIds);
+                });
+    }
+
+    /**
+     * Whether this user's follows from before the following index have been
+     * copied to it, so the index and followedIds() are complete
+     */
+    public boolean isMigrated() {
+        String currentUserId = FirebaseHelper.getCurrentUserId();
+        return currentUserId != null && currentUserId.equals(preferences.getString(KEY_MIGRATED, null));
+    }
+
+    /**
+     * Follow or unfollow; repeating either changes nothing. The local set is
+     * updated once the write succeeds.
+     */
+    public Task<Void> setFollowing(String targetUserId, boolean follow) {
+        String currentUserId = FirebaseHelper.getCurrentUserId();
+        if (currentUserId == null) return Tasks.forException(new IllegalStateException("No authenticated user"));
+
+        DocumentReference followerRef = followerRef(targetUserId, currentUserId);
+        DocumentReference followingRef = followingRef(currentUserId, targetUserId);
+        return db.runTransaction(transaction -> {
+            FollowEdges edges = FollowEdges.of(transaction.get(followerRef).exists(),
+                    transaction.get(followingRef).exists(), follow);
+            if (!edges.changesAnything()) return null;
+            if (edges.writeEdges) {
+                Map<String, Object> edge = edge(currentUserId, targetUserId);
+                transaction.set(followerRef, edge);
+                transaction.set(followingRef, edge);
+            } else {
+                transaction.delete(followerRef);
+                transaction.delete(followingRef);
+            }
+            UserStats.increment(transaction, targetUserId, UserStats.FOLLOWERS_COUNT, edges.followersDelta);
+            UserStats.increment(transaction, currentUserId, UserStats.FOLLOWING_COUNT, edges.followingDelta);
+            return null;
+        }).addOnSuccessListener(result -> {
+            boolean changed = follow ? followed.add(targetUserId) : followed.remove(targetUserId);
+            persist(currentUserId);
+            if (follow) {
+                TimelineService.getInstance().pullAuthors(currentUserId, Collections.singleton(targetUserId));
+            } else {
+                TimelineService.getInstance().removeAuthor(currentUserId, targetUserId);
+            }
+            if (changed) {
+                notifyChanged(Collections.singleton(targetUserId));
+            }
+        });
+    }
+
+    public synchronized void clear() {
+        followed.clear();
+        loaded = false;
+        migration = null;
+        preferences.edit().clear().apply();
+    }
+
+    /**
+     * Copy the follows written before the following index existed, which are
+     * empty documents at followers/{target}/userFollowers/{me}, to the index
+     * and give them both uids. Candidates are every user, looked up by
+     * document path a page at a time; done once per user.
+     */
+    public synchronized Task<Void> migrateLegacyFollows() {
+        String currentUserId = FirebaseHelper.getCurrentUserId();
+        if (currentUserId == null || isMigrated()) return Tasks.forResult(null);
+        if (migration != null) return migration;
+
+        Task<Void> task = migratePage(currentUserId, null);
+        migration = task;
+        task.addOnCompleteListener(done -> {
+            synchronized (this) {
+                if (migration != task) return;
+                migration = null;
+            }
+            if (done.isSuccessful()) {
+                preferences.edit().putString(KEY_MIGRATED, currentUserId).apply();
+            } else {
+                Log.w(TAG, "Follow index migration failed: " + done.getException());
+            }
+        });
+        return task;
+    }
+
+    private Task<Void> migratePage(String currentUserId, DocumentSnapshot after) {
+        Query users = db.collection(Constants.COLLECTION_USERS)
+                .orderBy(FieldPath.documentId())
+                .limit(Constants.FOLLOW_MIGRATION_PAGE_SIZE);
+        if (after != null) {
+            users = users.startAfter(after);
+        }
+        return users.get().continueWithTask(task -> {
+            if (!task.isSuccessful()) return Tasks.forException(task.getException());
+            List<DocumentSnapshot> page = task.getResult().getDocuments();
+            List<String> paths = new ArrayList<>();
+            for (DocumentSnapshot user : page) {
+                if (!user.getId().equals(currentUserId)) {
+                    paths.add(FollowEdges.followerPath(user.getId(), currentUserId));
+                }
+            }
+            Task<Void> copied = findLegacyFollows(paths)
+                    .onSuccessTask(targetIds -> copyToFollowingIndex(currentUserId, targetIds));
+            if (page.size() < Constants.FOLLOW_MIGRATION_PAGE_SIZE) return copied;
+            DocumentSnapshot last = page.get(page.size() - 1);
+            return copied.onSuccessTask(aVoid -> migratePage(currentUserId, last));
+        });
+    }
+
+    /**
+     * The followed uids of the follower documents that exist among these paths
+     */
+    private Task<List<String>> findLegacyFollows(List<String> paths) {
+        List<Task<QuerySnapshot>> reads = new ArrayList<>();
+        for (int start = 0; start < paths.size(); start += Constants.FIRESTORE_WHERE_IN_LIMIT) {
+            List<String> chunk = paths.subList(start, Math.min(start + Constants.FIRESTORE_WHERE_IN_LIMIT, paths.size()));
+            reads.add(db.collectionGroup("userFollowers")
+                    .whereIn(FieldPath.documentId(), new ArrayList<>(chunk))
+                    .get());
+        }
+        return Tasks.whenAllSuccess(reads).continueWith(task -> {
+            List<String> targetIds = new ArrayList<>();
+            for (Object result : task.getResult()) {
+                for (DocumentSnapshot doc : ((QuerySnapshot) result).getDocuments()) {
+                    // followers/{target}/userFollowers/{me}
+                    DocumentReference target = doc.getReference().getParent().getParent();
+                    if (target != null) {
+                        targetIds.add(target.getId());
+                    }
+                }
+            }
+            return targetIds;
+        });
+    }
+
+    /**
+     * Counters are left alone: followersCount already counts these documents,
+     * and followingCount is computed from the index once it is complete
+     */
+    private Task<Void> copyToFollowingIndex(String currentUserId, List<String> targetIds) {
+        // Two writes per follow
+        int perBatch = Constants.FIRESTORE_BATCH_LIMIT / 2;
+        List<Task<Void>> commits = new ArrayList<>();
+        for (int start = 0; start < targetIds.size(); start += perBatch) {
+            WriteBatch batch = db.batch();
+            for (String targetId : targetIds.subList(start, Math.min(start + perBatch, targetIds.size()))) {
+                Map<String, Object> edge = edge(currentUserId, targetId);
+                batch.set(followingRef(currentUserId, targetId), edge, SetOptions.merge());
+                batch.set(followerRef(targetId, currentUserId), edge, SetOptions.merge());
+            }
+            commits.add(batch.commit());
+        }
+        return Tasks.whenAll(commits);
+    }
+
+    private void persist(String currentUserId) {
+        preferences.edit()
+                .putString(KEY_OWNER, currentUserId)
+                .putStringSet(KEY_FOLLOWING, new HashSet<>(followed))
+                .apply();
+    }
+
+    private void notifyChanged(Set<String> userIds) {
+        if (userIds.isEmpty()) return;
+        for (Listener listener : listeners) {
+            listener.onFollowingChanged(userIds);
+        }
+    }
+
+    private DocumentReference followerRef(String targetUserId, String followerId) {
+        return db.collection("followers").document(targetUserId).collection("userFollowers").document(followerId);
+    }
+
+    private DocumentReference followingRef(String followerId, String targetUserId) {
+        return db.collection("following").document(followerId).collection("userFollowing").document(targetUserId);
+    }
+
+    /**
+     * Both index documents carry both uids, so either side can be queried
+     */
+    private static Map<String, Object> edge(String followerId, String followingId) {
+        Map<String, Object> edge = new HashMap<>();
+        edge.put("followerId", followerId);
+        edge.put("followingId", followingId);
+        edge.put("timestamp", Timestamp.now());
+        return edge;
+    }
+}
@@ -25,15 +25,16 @@ import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Query;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class HomeActivity extends AppCompatActivity {
 
     private RecyclerView rvPosts;
     private PostAdapter postAdapter;
-    private List<Post> postList;
     private FirebaseFirestore db;
+    private FeedPager feedPager;
+    private RecyclerView.OnScrollListener feedPrefetchListener;
+    private FeedPreloader feedPreloader;
     private SwipeRefreshLayout swipeRefreshLayout;
     private LinearLayout emptyStateView;
     private BottomNavigationView bottomNavigation;
@@ -41,6 +42,18 @@ public class HomeActivity extends AppCompatActivity {
     private SharedPreferences sharedPreferences;
     private static final String PREF_THEME = "theme_mode";
 
+    private final FeedSignals.Listener signalsListener = authorIds -> {
+        if (feedPager != null) {
+            feedPager.rescoreAuthors(authorIds);
+        }
+    };
+
+    private final LikeController.Listener likeErrorListener = (postId, error) -> {
+        if (error != null) {
+            Toast.makeText(this, "Couldn't update like: " + error, Toast.LENGTH_SHORT).show();
+        }
+    };
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -55,6 +68,7 @@ public class HomeActivity extends AppCompatActivity {
         setupBottomNavigation();
         loadPosts();
         setupSwipeRefresh();
+        LikeController.getInstance().addListener(likeErrorListener);
     }
 
     private void initViews() {
@@ -100,10 +114,15 @@ public class HomeActivity extends AppCompatActivity {
     }
 
     private void setupRecyclerView() {
-        postList = new ArrayList<>();
-        postAdapter = new PostAdapter(this, postList);
-        rvPosts.setLayoutManager(new LinearLayoutManager(this));
+        postAdapter = new PostAdapter(this);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        // Hand rows back to the shared pool when this screen goes away
+        layoutManager.setRecycleChildrenOnDetach(true);
+        rvPosts.setLayoutManager(layoutManager);
+        rvPosts.setRecycledViewPool(RowViewFactory.getInstance().sharedPool());
         rvPosts.setAdapter(postAdapter);
+        feedPreloader = new FeedPreloader(postAdapter, Constants.FEED_IMAGE_PRELOAD_ROWS);
+        rvPosts.addOnScrollListener(feedPreloader);
     }
 
     private void setupBottomNavigation() {
@@ -137,32 +156,85 @@ public class HomeActivity extends AppCompatActivity {
     }
 
     private void loadPosts() {
-        db = FirebaseFirestore.getInstance();
-        db.collection("posts")
-                .orderBy("timestamp", Query.Direction.DESCENDING)
-                .addSnapshotListener((snapshots, e) -> {
-                    if (e != null) {
-                        showErrorToast("Error loading posts: " + e.getMessage());
-                        return;
+        String currentUserId = FirebaseHelper.getCurrentUserId();
+        if (feedPager == null) {
+            db = FirebaseFirestore.getInstance();
+            // The timeline is used once it holds everyone the user followed before it existed
+            boolean timelineReady = currentUserId != null
+                    && TimelineService.getInstance().isBackfilled(this, currentUserId);
+            createFeedPager(timelineReady ? currentUserId : null);
+            FeedSignals.getInstance(this).addListener(signalsListener);
+            if (timelineReady) {
+                checkTimeline(currentUserId);
+            }
+            if (currentUserId != null) {
+                // Finish a snapshot refresh an earlier profile change did not complete
+                AuthorSnapshots.refreshIfStale(this, currentUserId);
+            }
+        }
+        feedPreloader.reset();
+        feedPager.start();
+        FeedSignals.getInstance(this).loadFollowing()
+                .addOnSuccessListener(followed -> {
+                    if (currentUserId == null) return;
+                    // Only a migrated followed set includes follows from before the following index
+                    if (FollowService.getInstance(this).isMigrated()) {
+                        TimelineService.getInstance().backfill(this, currentUserId, followed);
+                    }
+                    if (!followed.isEmpty()) {
+                        TimelineService.getInstance().pullLargeAccounts(currentUserId, followed);
                     }
+                });
+    }
 
-                    if (snapshots != null) {
-                        postList.clear();
-                        for (var doc : snapshots) {
-                            Post post = doc.toObject(Post.class);
-                            if (post != null) {
-                                post.setId(doc.getId());
-                                postList.add(post);
-                            }
-                        }
-                        postAdapter.notifyDataSetChanged();
-                        updateEmptyState();
+    /**
+     * Page the user's timeline, or the global posts collection when timelineUserId is null
+     */
+    private void createFeedPager(String timelineUserId) {
+        if (feedPager != null) {
+            feedPager.stop();
+            rvPosts.removeOnScrollListener(feedPrefetchListener);
+        }
+        Query feedQuery = timelineUserId != null
+                ? TimelineService.getInstance().timelineQuery(timelineUserId)
+                : db.collection(Constants.COLLECTION_POSTS).orderBy("timestamp", Query.Direction.DESCENDING);
+        feedPager = new FeedPager(feedQuery, Constants.FEED_PAGE_SIZE, new FeedPager.Listener() {
+            @Override
+            public void onPostsChanged(List<Post> posts) {
+                postAdapter.submitList(posts, () -> updateEmptyState());
+            }
+
+            @Override
+            public void onError(String error) {
+                showErrorToast("Error loading posts: " + error);
+            }
+        });
+        feedPager.setResolvesReferences(timelineUserId != null);
+        feedPager.setSnapshotStore(FeedSnapshotStore.getInstance(this));
+        feedPager.setRanker(new FeedRanker(FeedSignals.getInstance(this)));
+        feedPrefetchListener = feedPager.prefetchListener(Constants.FEED_PREFETCH_DISTANCE);
+        rvPosts.addOnScrollListener(feedPrefetchListener);
+    }
+
+    /**
+     * Accounts with nothing in their timeline yet, e.g. new users who follow
+     * nobody, see the global feed instead
+     */
+    private void checkTimeline(String userId) {
+        TimelineService.getInstance().timelineQuery(userId)
+                .limit(1)
+                .get()
+                .addOnSuccessListener(querySnapshot -> {
+                    if (querySnapshot.isEmpty() && !isDestroyed()) {
+                        createFeedPager(null);
+                        feedPreloader.reset();
+                        feedPager.start();
                     }
                 });
     }
 
     private void updateEmptyState() {
-        if (postList.isEmpty()) {
+        if (postAdapter.getCurrentList().isEmpty()) {
             emptyStateView.setVisibility(View.VISIBLE);
             rvPosts.setVisibility(View.GONE);
         } else {
@@ -288,6 +360,11 @@ public class HomeActivity extends AppCompatActivity {
                 .setMessage("Are you sure you want to logout?")
                 .setPositiveButton("Logout", (dialog, which) -> {
                     FirebaseAuth.getInstance().signOut();
+                    FeedSnapshotStore.getInstance(this).clear();
+                    FeedSignals.getInstance(this).clear();
+                    FollowService.getInstance(this).clear();
+                    LikeService.getInstance().clear();
+                    LikeController.getInstance().clear();
                     Intent intent = new Intent(this, LoginActivity.class);
                     intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
                     startActivity(intent);
@@ -309,6 +386,16 @@ public class HomeActivity extends AppCompatActivity {
                 .start();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        LikeController.getInstance().removeListener(likeErrorListener);
+        FeedSignals.getInstance(this).removeListener(signalsListener);
+        if (feedPager != null) {
+            feedPager.stop();
+        }
+    }
+
     @Override
     public void onBackPressed() {
         // If RecyclerView is not at top, scroll to top first
@@ -0,0 +1,148 @@
+package com.example.socialapp;
+
+import com.google.firebase.firestore.DocumentChange;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ordered list with a key-to-position index.
+ * Positions after an insert or remove are repaired lazily on the next lookup,
+ * so appending and applying Firestore document changes stay O(1) each.
+ */
+public class KeyedList<T> {
+
+    public interface KeyFunction<T> {
+        String keyOf(T item);
+    }
+
+    private final KeyFunction<T> keyFunction;
+    private final List<T> items = new ArrayList<>();
+    private final Map<String, Integer> positions = new HashMap<>();
+    // Entries in positions are trusted only for indexes below this bound
+    private int validUpTo = 0;
+
+    public KeyedList(KeyFunction<T> keyFunction) {
+        this.keyFunction = keyFunction;
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    public T get(int position) {
+        return items.get(position);
+    }
+
+    public List<T> asList() {
+        return Collections.unmodifiableList(items);
+    }
+
+    public List<T> snapshot() {
+        return new ArrayList<>(items);
+    }
+
+    public int indexOf(String key) {
+        if (key == null) return -1;
+        Integer position = positions.get(key);
+        if (position != null && position < validUpTo) {
+            return position;
+        }
+        for (int i = validUpTo; i < items.size(); i++) {
+            positions.put(keyFunction.keyOf(items.get(i)), i);
+        }
+        validUpTo = items.size();
+        position = positions.get(key);
+        return position != null ? position : -1;
+    }
+
+    public boolean containsKey(String key) {
+        return indexOf(key) >= 0;
+    }
+
+    public T getByKey(String key) {
+        int position = indexOf(key);
+        return position >= 0 ? items.get(position) : null;
+    }
+
+    public void add(T item) {
+        add(items.size(), item);
+    }
+
+    public void add(int position, T item) {
+        items.add(position, item);
+        positions.put(keyFunction.keyOf(item), position);
+        // Everything before the insert is untouched; everything from it on shifted
+        validUpTo = Math.min(validUpTo, position);
+    }
+
+    /**
+     * Insert a run of items with one shift of the backing list
+     */
+    public void addAll(int position, List<T> newItems) {
+        if (newItems.isEmpty()) return;
+        items.addAll(position, newItems);
+        for (int i = 0; i < newItems.size(); i++) {
+            positions.put(keyFunction.keyOf(newItems.get(i)), position + i);
+        }
+        validUpTo = Math.min(validUpTo, position);
+    }
+
+    public void set(int position, T item) {
+        T previous = items.set(position, item);
+        String previousKey = keyFunction.keyOf(previous);
+        String key = keyFunction.keyOf(item);
+        if (!previousKey.equals(key)) {
+            positions.remove(previousKey);
+        }
+        positions.put(key, position);
+    }
+
+    public T remove(int position) {
+        T removed = items.remove(position);
+        positions.remove(keyFunction.keyOf(removed));
+        validUpTo = Math.min(validUpTo, position);
+        return removed;
+    }
+
+    public T removeByKey(String key) {
+        int position = indexOf(key);
+        return position >= 0 ? remove(position) : null;
+    }
+
+    public void clear() {
+        items.clear();
+        positions.clear();
+        validUpTo = 0;
+    }
+
+    /**
+     * Apply one Firestore document change using its old and new indexes.
+     * Changes must be applied in the order the snapshot reports them.
+     */
+    public void apply(DocumentChange.Type type, int oldIndex, int newIndex, T item) {
+        switch (type) {
+            case ADDED:
+                add(newIndex, item);
+                break;
+            case MODIFIED:
+                if (oldIndex == newIndex) {
+                    set(newIndex, item);
+                } else {
+                    remove(oldIndex);
+                    add(newIndex, item);
+                }
+                break;
+            case REMOVED:
+                remove(oldIndex);
+                break;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.socialapp;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Optimistic like toggling. A tap changes the local state right away, rapid
+ * taps on the same post are coalesced into one write after LIKE_DEBOUNCE_MS,
+ * and a failed write rolls the post back to what the server has.
+ *
+ * The overlay is kept until the post's likeCount from Firestore moves away
+ * from the count seen at the first tap (the sharded counter has been rolled
+ * up) or LIKE_OVERLAY_TTL_MS after the last write settled.
+ *
+ * Comments go through the same overlays, keyed by comment id.
+ */
+public class LikeController {
+
+    public interface Listener {
+        /**
+         * Called on the main thread; error is set when a write was rolled back
+         */
+        void onLikeStateChanged(String postId, @Nullable String error);
+    }
+
+    /**
+     * Where a target's like state is written, and where its known state is
+     * restored after a failed write
+     */
+    private interface Writer {
+        void write(String id, boolean liked, LikeService.LikeCallback callback);
+        void remember(String id, boolean liked);
+    }
+
+    private static final Writer POST_WRITER = new Writer() {
+        @Override
+        public void write(String id, boolean liked, LikeService.LikeCallback callback) {
+            LikeService.getInstance().setPostLiked(id, liked, callback);
+        }
+
+        @Override
+        public void remember(String id, boolean liked) {
+            LikeService.getInstance().rememberLiked(id, liked);
+        }
+    };
+
+    private static LikeController instance;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Map<String, Overlay> overlays = new HashMap<>();
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private static class Overlay {
+        final Writer writer;
+        final boolean initialLiked;
+        final int baseCount;
+        boolean desiredLiked;
+        boolean serverLiked;
+        boolean writing;
+        long settledAt;
+        Runnable pendingFlush;
+
+        Overlay(Writer writer, boolean initialLiked, int baseCount) {
+            this.writer = writer;
+            this.initialLiked = initialLiked;
+            this.baseCount = baseCount;
+            this.desiredLiked = initialLiked;
+            this.serverLiked = initialLiked;
+        }
+
+        int likeCount() {
+            int delta = (desiredLiked ? 1 : 0) - (initialLiked ? 1 : 0);
+            return Math.max(0, baseCount + delta);
+        }
+    }
+
+    private LikeController() {}
+
+    public static synchronized LikeController getInstance() {
+        if (instance == null) {
+            instance = new LikeController();
+        }
+        return instance;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Flip the like state of a post and schedule the write.
+     * Must be called on the main thread; returns the post as it should now be shown.
+     */
+    public Post toggle(Post post) {
+        Post shown;
+        synchronized (this) {
+            Overlay overlay = toggleOverlay(post.getId(), post.isLikedByCurrentUser(), post.getLikeCount(), POST_WRITER);
+            shown = post.withLikeState(overlay.desiredLiked, overlay.likeCount());
+        }
+        notifyListeners(post.getId(), null);
+        return shown;
+    }
+
+    /**
+     * The same for a comment of the given post
+     */
+    public Comment toggle(String postId, Comment comment) {
+        Comment shown;
+        synchronized (this) {
+            Overlay overlay = toggleOverlay(comment.getId(), comment.isLikedByCurrentUser(), comment.getLikeCount(),
+                    new Writer() {
+                        @Override
+                        public void write(String id, boolean liked, LikeService.LikeCallback callback) {
+                            LikeService.getInstance().setCommentLiked(postId, id, liked, callback);
+                        }
+
+                        @Override
+                        public void remember(String id, boolean liked) {
+                            LikeService.getInstance().rememberCommentLiked(id, liked);
+                        }
+                    });
+            shown = comment.withLikeState(overlay.desiredLiked, overlay.likeCount());
+        }
+        notifyListeners(comment.getId(), null);
+        return shown;
+    }
+
+    private Overlay toggleOverlay(String id, boolean liked, int likeCount, Writer writer) {
+        Overlay overlay = overlays.get(id);
+        if (overlay == null) {
+            overlay = new Overlay(writer, liked, likeCount);
+            overlays.put(id, overlay);
+        }
+        overlay.desiredLiked = !overlay.desiredLiked;
+        overlay.settledAt = 0;
+        if (overlay.pendingFlush != null) {
+            handler.removeCallbacks(overlay.pendingFlush);
+        }
+        overlay.pendingFlush = () -> flush(id);
+        handler.postDelayed(overlay.pendingFlush, Constants.LIKE_DEBOUNCE_MS);
+        return overlay;
+    }
+
+    /**
+     * Drop every overlay and pending write, e.g. on sign-out; writes already
+     * in flight complete without touching the next user's state
+     */
+    public synchronized void clear() {
+        for (Overlay overlay : overlays.values()) {
+            if (overlay.pendingFlush != null) {
+                handler.removeCallbacks(overlay.pendingFlush);
+            }
+        }
+        overlays.clear();
+    }
+
+    /**
+     * The post with any pending local like state applied. Safe to call from
+     * the ingestion thread; drops overlays the server state has caught up with.
+     */
+    public synchronized Post apply(Post post) {
+        Overlay overlay = liveOverlay(post.getId(), post.getLikeCount());
+        return overlay != null ? post.withLikeState(overlay.desiredLiked, overlay.likeCount()) : post;
+    }
+
+    public synchronized Comment apply(Comment comment) {
+        Overlay overlay = liveOverlay(comment.getId(), comment.getLikeCount());
+        return overlay != null ? comment.withLikeState(overlay.desiredLiked, overlay.likeCount()) : comment;
+    }
+
+    private Overlay liveOverlay(String id, int likeCount) {
+        Overlay overlay = overlays.get(id);
+        if (overlay == null) return null;
+
+        boolean idle = !overlay.writing && overlay.pendingFlush == null;
+        if (idle && overlay.settledAt != 0
+                && (likeCount != overlay.baseCount
+                || SystemClock.elapsedRealtime() - overlay.settledAt > Constants.LIKE_OVERLAY_TTL_MS)) {
+            overlays.remove(id);
+            return null;
+        }
+        return overlay;
+    }
+
+    private void flush(String postId) {
+        boolean target;
+        Writer writer;
+        synchronized (this) {
+            Overlay overlay = overlays.get(postId);
+            if (overlay == null) return;
+            overlay.pendingFlush = null;
+            // An in-flight write picks up the latest state when it completes
+            if (overlay.writing) return;
+            if (overlay.desiredLiked == overlay.serverLiked) {
+                settle(postId, overlay);
+                return;
+            }
+            overlay.writing = true;
+            target = overlay.desiredLiked;
+            writer = overlay.writer;
+        }
+
+        writer.write(postId, target, (liked, error) -> {
+            boolean flushAgain = false;
+            synchronized (this) {
+                Overlay overlay = overlays.get(postId);
+                if (overlay == null) return;
+                overlay.writing = false;
+                if (error != null) {
+                    // Roll back to the last state the server accepted
+                    if (overlay.pendingFlush != null) {
+                        handler.removeCallbacks(overlay.pendingFlush);
+                    }
+                    overlays.remove(postId);
+                    overlay.writer.remember(postId, overlay.serverLiked);
+                } else {
+                    overlay.serverLiked = target;
+                    if (overlay.pendingFlush == null) {
+                        flushAgain = overlay.desiredLiked != overlay.serverLiked;
+                        if (!flushAgain) {
+                            settle(postId, overlay);
+                        }
+                    }
+                }
+            }
+            if (error != null) {
+                notifyListeners(postId, error);
+            } else if (flushAgain) {
+                flush(postId);
+            }
+        });
+    }
+
+    private void settle(String postId, Overlay overlay) {
+        if (overlay.desiredLiked == overlay.initialLiked) {
+            // Net no change; the server count never moved
+            overlays.remove(postId);
+        } else {
+            overlay.settledAt = SystemClock.elapsedRealtime();
+        }
+    }
+
+    private void notifyListeners(String postId, @Nullable String error) {
+        for (Listener listener : listeners) {
+            listener.onLikeStateChanged(postId, error);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.socialapp;
+
+import androidx.annotation.Nullable;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Likes stored as a sharded likeCount counter on the post plus one membership
+ * document per liker at posts/{postId}/likes/{uid}. The post document stays the same
+ * size however popular it gets.
+ *
+ * Comments are liked the same way, with memberships at
+ * posts/{postId}/comments/{commentId}/likes/{uid}.
+ */
+public class LikeService {
+
+    public interface LikeCallback {
+        void onComplete(boolean liked, @Nullable String error);
+    }
+
+    public interface LikedIdsCallback {
+        void onLoaded(Set<String> likedIds);
+    }
+
+    private static LikeService instance;
+
+    private final FirebaseFirestore db;
+    // Known like state of the current user per post id and per comment id
+    private final Map<String, Boolean> likedPosts = new HashMap<>();
+    private final Map<String, Boolean> likedComments = new HashMap<>();
+    // Bumped on sign-out, so lookups and writes started for the previous user are not cached
+    private int generation = 0;
+
+    private LikeService() {
+        db = FirebaseFirestore.getInstance();
+    }
+
+    public static synchronized LikeService getInstance() {
+        if (instance == null) {
+            instance = new LikeService();
+        }
+        return instance;
+    }
+
+    /**
+     * Cached like state for a post, or null if it has not been looked up yet
+     */
+    @Nullable
+    public synchronized Boolean isLikedCached(String postId) {
+        return likedPosts.get(postId);
+    }
+
+    public synchronized void rememberLiked(String postId, boolean liked) {
+        likedPosts.put(postId, liked);
+    }
+
+    @Nullable
+    public synchronized Boolean isCommentLikedCached(String commentId) {
+        return likedComments.get(commentId);
+    }
+
+    public synchronized void rememberCommentLiked(String commentId, boolean liked) {
+        likedComments.put(commentId, liked);
+    }
+
+    /**
+     * Forget the signed-out user's like state
+     */
+    public synchronized void clear() {
+        likedPosts.clear();
+        likedComments.clear();
+        generation++;
+    }
+
+    public void setPostLiked(String postId, boolean liked, LikeCallback callback) {
+        DocumentReference postRef = db.collection(Constants.COLLECTION_POSTS).document(postId);
+        int writeGeneration = currentGeneration();
+        setLiked(postRef, "postId", liked, (result, error) -> {
+            if (error == null) {
+                remember(likedPosts, postId, result, writeGeneration);
+            }
+            callback.onComplete(result, error);
+        });
+    }
+
+    public void setCommentLiked(String postId, String commentId, boolean liked, LikeCallback callback) {
+        DocumentReference commentRef = db.collection(Constants.COLLECTION_POSTS).document(postId)
+                .collection(Constants.COLLECTION_COMMENTS).document(commentId);
+        int writeGeneration = currentGeneration();
+        setLiked(commentRef, "commentId", liked, (result, error) -> {
+            if (error == null) {
+                remember(likedComments, commentId, result, writeGeneration);
+            }
+            callback.onComplete(result, error);
+        });
+    }
+
+    /**
+     * Answer "which of these posts did I like" with one collection group query
+     * per FIRESTORE_WHERE_IN_LIMIT ids. Ids already known are not queried again.
+     */
+    public void loadLikedPostIds(Collection<String> postIds, Executor executor, LikedIdsCallback callback) {
+        loadLikedIds("postId", likedPosts, postIds, executor, callback);
+    }
+
+    /**
+     * The same for comments, so the lookup grows with the comments loaded
+     * rather than with the thread
+     */
+    public void loadLikedCommentIds(Collection<String> commentIds, Executor executor, LikedIdsCallback callback) {
+        loadLikedIds("commentId", likedComments, commentIds, executor, callback);
+    }
+
+    private void loadLikedIds(String idField, Map<String, Boolean> known, Collection<String> ids,
+                              Executor executor, LikedIdsCallback callback) {
+        String currentUserId = FirebaseHelper.getCurrentUserId();
+        int loadGeneration = currentGeneration();
+        List<String> unknown = new ArrayList<>();
+        synchronized (this) {
+            for (String id : ids) {
+                if (!known.containsKey(id)) {
+                    unknown.add(id);
+                }
+            }
+        }
+        if (currentUserId == null || unknown.isEmpty()) {
+            executor.execute(() -> callback.onLoaded(likedSubset(known, ids)));
+            return;
+        }
+
+        int chunks = (unknown.size() + Constants.FIRESTORE_WHERE_IN_LIMIT - 1) / Constants.FIRESTORE_WHERE_IN_LIMIT;
+        AtomicInteger remaining = new AtomicInteger(chunks);
+        for (int start = 0; start < unknown.size(); start += Constants.FIRESTORE_WHERE_IN_LIMIT) {
+            List<String> chunk = new ArrayList<>(unknown.subList(start,
+                    Math.min(start + Constants.FIRESTORE_WHERE_IN_LIMIT, unknown.size())));
+            db.collectionGroup(Constants.COLLECTION_LIKES)
+                    .whereEqualTo("userId", currentUserId)
+                    .whereIn(idField, chunk)
+                    .get()
+                    .addOnCompleteListener(executor, task -> {
+                        if (task.isSuccessful()) {
+                            Set<String> liked = new HashSet<>();
+                            for (DocumentSnapshot doc : task.getResult().getDocuments()) {
+                                liked.add(doc.getString(idField));
+                            }
+                            for (String id : chunk) {
+                                remember(known, id, liked.contains(id), loadGeneration);
+                            }
+                        }
+                        if (remaining.decrementAndGet() == 0) {
+                            callback.onLoaded(likedSubset(known, ids));
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Add or remove the current user's membership document and adjust the
+     * counter in one transaction, so repeated calls never double count.
+     * The target itself is read before the transaction: only the membership
+     * document is read inside it, so likes on a hot post do not contend on
+     * the post document.
+     */
+    void setLiked(DocumentReference targetRef, String targetIdField, boolean liked, LikeCallback callback) {
+        String currentUserId = FirebaseHelper.getCurrentUserId();
+        if (currentUserId == null) {
+            callback.onComplete(!liked, "No authenticated user");
+            return;
+        }
+
+        DocumentReference likeRef = targetRef.collection(Constants.COLLECTION_LIKES).document(currentUserId);
+        targetRef.get().continueWithTask(targetTask -> {
+            if (!targetTask.isSuccessful()) return Tasks.forException(targetTask.getException());
+            DocumentSnapshot target = targetTask.getResult();
+            // Older posts still carry liker uids in a "likes" array; those count on top of likeCount
+            boolean legacyMember = ModelMapper.getStringList(target, "likes").contains(currentUserId);
+            // Only likes on posts count towards the author's likesReceived
+            String authorId = Constants.COLLECTION_POSTS.equals(targetRef.getParent().getId())
+                    ? ModelMapper.getString(target, "userId") : null;
+            return db.runTransaction(transaction -> {
+                boolean member = transaction.get(likeRef).exists();
+
+                if (liked && !member && !legacyMember) {
+                    Map<String, Object> like = new HashMap<>();
+                    like.put("userId", currentUserId);
+                    like.put(targetIdField, targetRef.getId());
+                    like.put("timestamp", Timestamp.now());
+                    transaction.set(likeRef, like);
+                    ShardedCounter.getInstance().increment(transaction, targetRef, "likeCount", 1);
+                    UserStats.increment(transaction, authorId, UserStats.LIKES_RECEIVED, 1);
+                } else if (!liked) {
+                    if (member) {
+                        transaction.delete(likeRef);
+                        ShardedCounter.getInstance().increment(transaction, targetRef, "likeCount", -1);
+                    }
+                    if (legacyMember) {
+                        transaction.update(targetRef, "likes", FieldValue.arrayRemove(currentUserId));
+                    }
+                    if (member || legacyMember) {
+                        UserStats.increment(transaction, authorId, UserStats.LIKES_RECEIVED, -1);
+                    }
+                }
+                return null;
+            });
+        }).addOnSuccessListener(result -> {
+            ShardedCounter.getInstance().scheduleRollup(targetRef, "likeCount");
+            callback.onComplete(liked, null);
+        })
+                .addOnFailureListener(e -> callback.onComplete(!liked, e.getMessage()));
+    }
+
+    private synchronized int currentGeneration() {
+        return generation;
+    }
+
+    private synchronized void remember(Map<String, Boolean> known, String id, boolean liked, int rememberGeneration) {
+        if (rememberGeneration == generation) {
+            known.put(id, liked);
+        }
+    }
+
+    private synchronized Set<String> likedSubset(Map<String, Boolean> known, Collection<String> ids) {
+        Set<String> liked = new HashSet<>();
+        for (String id : ids) {
+            if (Boolean.TRUE.equals(known.get(id))) {
+                liked.add(id);
+            }
+        }
+        return liked;
+    }
+}
@@ -262,9 +262,7 @@ public class LoginActivity extends AppCompatActivity {
         userProfile.put("bio", "");
         userProfile.put("joinedDate", System.currentTimeMillis());
         userProfile.put("isVerified", false);
-        userProfile.put("followersCount", 0);
-        userProfile.put("followingCount", 0);
-        userProfile.put("postsCount", 0);
+        userProfile.putAll(UserStats.emptyStats());
 
         // Create username reservation
         Map<String, Object> usernameData = new HashMap<>();
@@ -381,9 +379,7 @@ public class LoginActivity extends AppCompatActivity {
             userProfile.put("bio", "");
             userProfile.put("joinedDate", System.currentTimeMillis());
             userProfile.put("isVerified", false);
-            userProfile.put("followersCount", 0);
-            userProfile.put("followingCount", 0);
-            userProfile.put("postsCount", 0);
+            userProfile.putAll(UserStats.emptyStats());
             userProfile.put("loginMethod", "google");
 
             // Create username reservation
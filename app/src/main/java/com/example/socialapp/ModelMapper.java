@@ -0,0 +1,114 @@
+package com.example.socialapp;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hand-written document mappers for the hot read paths.
+ * DocumentSnapshot.toObject() maps through reflection on every call; these read
+ * the known fields directly and tolerate missing or mistyped values.
+ */
+public class ModelMapper {
+
+    // Posts written before likeCount existed keep their likers in this array
+    static final String LEGACY_LIKES = "likes";
+
+    public static Post toPost(DocumentSnapshot doc) {
+        return toPost(doc, null);
+    }
+
+    /**
+     * viewerId, if given, is looked up in the legacy likes array; the like
+     * state itself is applied where the feed is ingested
+     */
+    public static Post toPost(DocumentSnapshot doc, String viewerId) {
+        Post post = new Post();
+        post.setId(doc.getId());
+        post.setUserId(getString(doc, "userId"));
+        post.setUsername(getString(doc, "username"));
+        post.setImageUrl(getString(doc, "imageUrl"));
+        post.setFeedUrl(getString(doc, "feedUrl"));
+        post.setGridUrl(getString(doc, "gridUrl"));
+        post.setThumbUrl(getString(doc, "thumbUrl"));
+        post.setImageWidth((int) getLong(doc, "imageWidth"));
+        post.setImageHeight((int) getLong(doc, "imageHeight"));
+        post.setProfileImageUrl(getString(doc, AuthorSnapshots.AVATAR_URL));
+        post.setAvatarVersion(getLong(doc, AuthorSnapshots.AVATAR_VERSION));
+        post.setCaption(getString(doc, "caption"));
+        post.setCommentCount((int) getLong(doc, "commentCount"));
+        post.setViewCount((int) getLong(doc, "viewCount"));
+        post.setTimestamp(getTimestamp(doc, "timestamp"));
+
+        // Legacy likers count on top of likeCount, as in StatsQueryService.postStats
+        List<String> legacyLikes = legacyLikers(doc);
+        post.setLikeCount((int) getLong(doc, "likeCount") + legacyLikes.size());
+        post.setLegacyLiked(viewerId != null && legacyLikes.contains(viewerId));
+        return post;
+    }
+
+    public static Comment toComment(DocumentSnapshot doc) {
+        Comment comment = new Comment();
+        comment.setId(doc.getId());
+        comment.setUserId(getString(doc, "userId"));
+        comment.setUsername(getString(doc, "username"));
+        comment.setText(getString(doc, "text"));
+        comment.setTimestamp(getTimestamp(doc, "timestamp"));
+        comment.setLikeCount((int) getLong(doc, "likeCount"));
+        comment.setProfileImageUrl(getString(doc, AuthorSnapshots.AVATAR_URL));
+        comment.setAvatarVersion(getLong(doc, AuthorSnapshots.AVATAR_VERSION));
+        return comment;
+    }
+
+    public static User toUser(DocumentSnapshot doc) {
+        User user = new User();
+        String userId = getString(doc, "userId");
+        user.setUserId(userId != null ? userId : doc.getId());
+        user.setUsername(getString(doc, "username"));
+        user.setEmail(getString(doc, "email"));
+        user.setProfileImageUrl(getString(doc, "profileImageUrl"));
+        user.setPhoneNumber(getString(doc, "phoneNumber"));
+        user.setBio(getString(doc, "bio"));
+        user.setPostsCount(getLong(doc, UserStats.POSTS_COUNT));
+        user.setLikesReceived(getLong(doc, UserStats.LIKES_RECEIVED));
+        user.setCommentsMade(getLong(doc, UserStats.COMMENTS_MADE));
+        user.setFollowersCount(getLong(doc, UserStats.FOLLOWERS_COUNT));
+        user.setFollowingCount(getLong(doc, UserStats.FOLLOWING_COUNT));
+        user.setAvatarVersion(getLong(doc, AuthorSnapshots.AVATAR_VERSION));
+        return user;
+    }
+
+    static List<String> legacyLikers(DocumentSnapshot doc) {
+        return getStringList(doc, LEGACY_LIKES);
+    }
+
+    static String getString(DocumentSnapshot doc, String field) {
+        Object value = doc.get(field);
+        return value instanceof String ? (String) value : null;
+    }
+
+    static long getLong(DocumentSnapshot doc, String field) {
+        Object value = doc.get(field);
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+
+    static Timestamp getTimestamp(DocumentSnapshot doc, String field) {
+        Object value = doc.get(field);
+        return value instanceof Timestamp ? (Timestamp) value : null;
+    }
+
+    static List<String> getStringList(DocumentSnapshot doc, String field) {
+        List<String> result = new ArrayList<>();
+        Object value = doc.get(field);
+        if (value instanceof List) {
+            for (Object item : (List<?>) value) {
+                if (item instanceof String) {
+                    result.add((String) item);
+                }
+            }
+        }
+        return result;
+    }
+}
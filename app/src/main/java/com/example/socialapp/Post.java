@@ -1,34 +1,91 @@
 package com.example.socialapp;
 
 import com.google.firebase.Timestamp;
-
-import java.util.List;
+import com.google.firebase.firestore.Exclude;
 
 public class Post {
     private String id;
     private String userId;
     private String username;
     private String imageUrl;
+    // Down-scaled renditions of imageUrl; missing on posts uploaded before they existed
+    private String feedUrl;
+    private String gridUrl;
+    private String thumbUrl;
+    private int imageWidth;
+    private int imageHeight;
     private String profileImageUrl; // New field for profile image
+    // Profile version the username and profileImageUrl were copied at; 0 on older posts
+    private long avatarVersion;
     private String caption;
-    private List<String> likes;
+    private int likeCount;
     private int commentCount;
+    private int viewCount;
     private Timestamp timestamp;
 
+    // Resolved during feed ingestion, never stored
+    private boolean likedByCurrentUser;
+    // The viewer is still listed in the legacy likes array the post was mapped from
+    private boolean legacyLiked;
+
     public Post() {}
 
     public Post(String userId, String username, String imageUrl, String profileImageUrl, String caption,
-                List<String> likes, int commentCount, Timestamp timestamp) {
+                int likeCount, int commentCount, Timestamp timestamp) {
         this.userId = userId;
         this.username = username;
         this.imageUrl = imageUrl;
         this.profileImageUrl = profileImageUrl;
         this.caption = caption;
-        this.likes = likes;
+        this.likeCount = likeCount;
         this.commentCount = commentCount;
         this.timestamp = timestamp;
     }
 
+    /**
+     * Copy with a different like state; published posts are never mutated
+     * so list diffing can tell old and new rows apart
+     */
+    public Post withLikedByCurrentUser(boolean liked) {
+        return withLikeState(liked, likeCount);
+    }
+
+    public Post withLikeState(boolean liked, int likeCount) {
+        Post copy = new Post(userId, username, imageUrl, profileImageUrl, caption,
+                likeCount, commentCount, timestamp);
+        copy.id = id;
+        copy.feedUrl = feedUrl;
+        copy.gridUrl = gridUrl;
+        copy.thumbUrl = thumbUrl;
+        copy.imageWidth = imageWidth;
+        copy.imageHeight = imageHeight;
+        copy.viewCount = viewCount;
+        copy.avatarVersion = avatarVersion;
+        copy.likedByCurrentUser = liked;
+        copy.legacyLiked = legacyLiked;
+        return copy;
+    }
+
+    /**
+     * Smallest rendition at least targetWidth pixels wide, or the full image
+     */
+    public String imageUrlFor(int targetWidth) {
+        if (thumbUrl != null && renditionWidth(Constants.IMAGE_THUMB_WIDTH) >= targetWidth) {
+            return thumbUrl;
+        }
+        if (gridUrl != null && renditionWidth(Constants.IMAGE_GRID_WIDTH) >= targetWidth) {
+            return gridUrl;
+        }
+        if (feedUrl != null && renditionWidth(Constants.IMAGE_FEED_WIDTH) >= targetWidth) {
+            return feedUrl;
+        }
+        return imageUrl;
+    }
+
+    private int renditionWidth(int maxWidth) {
+        return imageWidth > 0 ? Math.min(maxWidth, imageWidth) : maxWidth;
+    }
+
     // Getters and setters
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
@@ -42,18 +99,49 @@ public class Post {
     public String getImageUrl() { return imageUrl; }
     public void setImageUrl(String imageUrl) { this.imageUrl = imageUrl; }
 
+    public String getFeedUrl() { return feedUrl; }
+    public void setFeedUrl(String feedUrl) { this.feedUrl = feedUrl; }
+
+    public String getGridUrl() { return gridUrl; }
+    public void setGridUrl(String gridUrl) { this.gridUrl = gridUrl; }
+
+    public String getThumbUrl() { return thumbUrl; }
+    public void setThumbUrl(String thumbUrl) { this.thumbUrl = thumbUrl; }
+
+    public int getImageWidth() { return imageWidth; }
+    public void setImageWidth(int imageWidth) { this.imageWidth = imageWidth; }
+
+    public int getImageHeight() { return imageHeight; }
+    public void setImageHeight(int imageHeight) { this.imageHeight = imageHeight; }
+
     public String getProfileImageUrl() { return profileImageUrl; }
     public void setProfileImageUrl(String profileImageUrl) { this.profileImageUrl = profileImageUrl; }
 
+    public long getAvatarVersion() { return avatarVersion; }
+    public void setAvatarVersion(long avatarVersion) { this.avatarVersion = avatarVersion; }
+
     public String getCaption() { return caption; }
     public void setCaption(String caption) { this.caption = caption; }
 
-    public List<String> getLikes() { return likes; }
-    public void setLikes(List<String> likes) { this.likes = likes; }
+    public int getLikeCount() { return likeCount; }
+    public void setLikeCount(int likeCount) { this.likeCount = likeCount; }
 
     public int getCommentCount() { return commentCount; }
     public void setCommentCount(int commentCount) { this.commentCount = commentCount; }
 
+    public int getViewCount() { return viewCount; }
+    public void setViewCount(int viewCount) { this.viewCount = viewCount; }
+
     public Timestamp getTimestamp() { return timestamp; }
     public void setTimestamp(Timestamp timestamp) { this.timestamp = timestamp; }
+
+    @Exclude
+    public boolean isLikedByCurrentUser() { return likedByCurrentUser; }
+    @Exclude
+    public void setLikedByCurrentUser(boolean likedByCurrentUser) { this.likedByCurrentUser = likedByCurrentUser; }
+
+    @Exclude
+    public boolean isLegacyLiked() { return legacyLiked; }
+    @Exclude
+    public void setLegacyLiked(boolean legacyLiked) { this.legacyLiked = legacyLiked; }
 }
@@ -1,70 +1,92 @@
 package com.example.socialapp;
 import android.content.Context;
 import android.content.Intent;
-import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
 import com.bumptech.glide.load.resource.bitmap.CircleCrop;
 import com.bumptech.glide.request.RequestOptions;
 import com.google.android.material.button.MaterialButton;
-import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.FieldValue;
-import com.google.firebase.firestore.FirebaseFirestore;
 
 import java.util.List;
 
-public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder> {
+public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder>
+        implements FeedPreloader.RequestProvider {
 
     private Context context;
-    private List<Post> posts;
-    private FirebaseFirestore db;
-    private String currentUserId;
+    private final RequestManager glide;
+    private final AsyncListDiffer<Post> differ;
+    private final StableIds stableIds = new StableIds();
 
-    public PostAdapter(Context context, List<Post> posts) {
+    public PostAdapter(Context context) {
         this.context = context;
-        this.posts = posts;
-        this.db = FirebaseFirestore.getInstance();
-        this.currentUserId = FirebaseAuth.getInstance().getCurrentUser().getUid();
+        this.glide = Glide.with(context);
+        this.differ = new AsyncListDiffer<>(this, new PostDiffCallback());
+        differ.addListListener((previous, current) -> stableIds.retain(current));
+        setHasStableIds(true);
+    }
+
+    /**
+     * Diff the new list against the current one on a background thread and
+     * dispatch only the row changes; onCommitted runs once the list is shown
+     */
+    public void submitList(List<Post> newPosts, Runnable onCommitted) {
+        differ.submitList(newPosts, onCommitted);
+    }
+
+    public List<Post> getCurrentList() {
+        return differ.getCurrentList();
     }
 
     @NonNull
     @Override
     public PostViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View view = LayoutInflater.from(context).inflate(R.layout.item_post, parent, false);
-        return new PostViewHolder(view);
+        return RowViewFactory.getInstance().create(parent, R.layout.item_post, PostViewHolder::new);
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        // Layout ids as view types keep rows distinct in the shared pool
+        return R.layout.item_post;
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull PostViewHolder holder) {
+        // Pooled rows may be reused by another screen; drop listeners that point at this one
+        holder.btnLike.setOnClickListener(null);
+        holder.btnComment.setOnClickListener(null);
+        holder.tvUsername.setOnClickListener(null);
+        holder.tvUsernameCaption.setOnClickListener(null);
+        holder.ivUserProfile.setOnClickListener(null);
     }
 
     @Override
     public void onBindViewHolder(@NonNull PostViewHolder holder, int position) {
         try {
-            Post post = posts.get(position);
+            Post post = differ.getCurrentList().get(position);
 
-            holder.tvUsername.setText(post.getUsername());
-            holder.tvUsernameCaption.setText(post.getUsername());
-            holder.tvCaption.setText(post.getCaption());
-            holder.tvLikeCount.setText(post.getLikes() != null ?
-                    post.getLikes().size() + " likes" : "0 likes");
-            holder.tvCommentCount.setText(post.getCommentCount() + " comments");
+            // Measured during ingestion; only built here if this post skipped it
+            PostTextCache.PostText text = PostTextCache.getInstance().get(post);
+            PostTextCache.bind(holder.tvUsername, text.usernameText);
+            PostTextCache.bind(holder.tvUsernameCaption, text.usernameCaptionText);
+            PostTextCache.bind(holder.tvCaption, text.captionText);
+            bindCounts(holder, post);
 
-            // Load post image
-            Glide.with(context)
-                    .load(post.getImageUrl())
+            // Load post image at the size of the row
+            PostImageRequests.feed(context, glide, post)
                     .into(holder.ivPostImage);
 
             // Load profile image with fallback
-            loadProfileImage(post.getUserId(), holder.ivUserProfile);
-
-            // Check if current user liked this post
-            boolean isLiked = post.getLikes() != null &&
-                    post.getLikes().contains(currentUserId);
-            updateLikeButtonState(holder.btnLike, isLiked);
+            loadProfileImage(post, holder.ivUserProfile);
 
             // Set click listeners
             holder.btnLike.setOnClickListener(v -> toggleLike(post, holder));
@@ -84,49 +106,77 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
         }
     }
 
-    private void loadProfileImage(String userId, ImageView profileImageView) {
+    @Override
+    public void onBindViewHolder(@NonNull PostViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.contains(PostDiffCallback.PAYLOAD_COUNTS)) {
+            // Only counts changed: leave images and text untouched
+            Post post = differ.getCurrentList().get(position);
+            bindCounts(holder, post);
+            holder.btnLike.setOnClickListener(v -> toggleLike(post, holder));
+            return;
+        }
+        super.onBindViewHolder(holder, position, payloads);
+    }
+
+    @Override
+    public RequestBuilder<?> getPreloadRequest(int position) {
+        List<Post> posts = differ.getCurrentList();
+        if (position < 0 || position >= posts.size()) return null;
+        return PostImageRequests.feed(context, glide, posts.get(position));
+    }
+
+    private void bindCounts(PostViewHolder holder, Post post) {
+        PostTextCache texts = PostTextCache.getInstance();
+        PostTextCache.bind(holder.tvLikeCount,
+                texts.count(PostTextCache.SLOT_LIKE_COUNT, post.getLikeCount() + " likes"));
+        PostTextCache.bind(holder.tvCommentCount,
+                texts.count(PostTextCache.SLOT_COMMENT_COUNT, post.getCommentCount() + " comments"));
+        updateLikeButtonState(holder.btnLike, post.isLikedByCurrentUser());
+    }
+
+    private void loadProfileImage(Post post, ImageView profileImageView) {
+        String userId = post.getUserId();
+        String fallbackUrl = post.getProfileImageUrl();
         try {
-            if (userId != null && !userId.isEmpty()) {
-                // First try to load from the profileImageUrl if available
-                db.collection("users").document(userId)
-                        .get()
-                        .addOnSuccessListener(documentSnapshot -> {
-                            try {
-                                if (documentSnapshot.exists()) {
-                                    String profileImageUrl = documentSnapshot.getString("profileImageUrl");
-                                    if (profileImageUrl != null && !profileImageUrl.isEmpty()) {
-                                        // Load profile image with circular crop
-                                        Glide.with(context)
-                                                .load(profileImageUrl)
-                                                .apply(RequestOptions.bitmapTransform(new CircleCrop()))
-                                                .placeholder(R.drawable.ic_person)
-                                                .error(R.drawable.ic_person)
-                                                .into(profileImageView);
-                                    } else {
-                                        // No profile image, show default person icon
-                                        profileImageView.setImageResource(R.drawable.ic_person);
-                                    }
-                                } else {
-                                    // User document doesn't exist, show default
-                                    profileImageView.setImageResource(R.drawable.ic_person);
-                                }
-                            } catch (Exception e) {
-                                profileImageView.setImageResource(R.drawable.ic_person);
-                            }
-                        })
-                        .addOnFailureListener(e -> {
-                            // Error loading user data, show default
-                            profileImageView.setImageResource(R.drawable.ic_person);
-                        });
-            } else {
-                // No userId, show default
-                profileImageView.setImageResource(R.drawable.ic_person);
+            // Remember which user this view is bound to; it may be recycled before the lookup returns
+            profileImageView.setTag(userId);
+            Glide.with(context).clear(profileImageView);
+            profileImageView.setImageResource(R.drawable.ic_person);
+
+            if (post.getAvatarVersion() > 0) {
+                // The author snapshot on the post is kept current by AuthorSnapshots
+                showProfileImage(fallbackUrl, profileImageView);
+            } else if (userId != null && !userId.isEmpty()) {
+                // Show the picture stored with the post until the profile lookup answers
+                User cached = UserProfileCache.getInstance().peek(userId);
+                String shownUrl = cached != null ? cached.getProfileImageUrl() : fallbackUrl;
+                showProfileImage(shownUrl, profileImageView);
+
+                UserProfileCache.getInstance().get(userId, (user, error) -> {
+                    if (!userId.equals(profileImageView.getTag())) return;
+                    String profileImageUrl = user != null ? user.getProfileImageUrl() : null;
+                    if (profileImageUrl != null && !profileImageUrl.equals(shownUrl)) {
+                        showProfileImage(profileImageUrl, profileImageView);
+                    }
+                });
             }
         } catch (Exception e) {
             profileImageView.setImageResource(R.drawable.ic_person);
         }
     }
 
+    private void showProfileImage(String profileImageUrl, ImageView profileImageView) {
+        if (profileImageUrl != null && !profileImageUrl.isEmpty()) {
+            // Load profile image with circular crop
+            Glide.with(context)
+                    .load(profileImageUrl)
+                    .apply(RequestOptions.bitmapTransform(new CircleCrop()))
+                    .placeholder(R.drawable.ic_person)
+                    .error(R.drawable.ic_person)
+                    .into(profileImageView);
+        }
+    }
+
     private void updateLikeButtonState(MaterialButton likeButton, boolean isLiked) {
         try {
             likeButton.setSelected(isLiked);
@@ -145,24 +195,13 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
 
     private void toggleLike(Post post, PostViewHolder holder) {
         try {
-            boolean isCurrentlyLiked = post.getLikes() != null && 
-                    post.getLikes().contains(currentUserId);
-            
-            if (isCurrentlyLiked) {
-                // Unlike
-                db.collection("posts").document(post.getId())
-                        .update("likes", FieldValue.arrayRemove(currentUserId));
-                holder.btnLike.setSelected(false);
-                holder.btnLike.setIconResource(R.drawable.ic_heart_outline);
-                holder.btnLike.setIconTintResource(R.color.white);
-            } else {
-                // Like
-                db.collection("posts").document(post.getId())
-                        .update("likes", FieldValue.arrayUnion(currentUserId));
-                holder.btnLike.setSelected(true);
-                holder.btnLike.setIconResource(R.drawable.ic_heart_filled);
-                holder.btnLike.setIconTintResource(R.color.like_color);
+            // Show the new state now; the write is debounced and the feed republishes
+            Post shown = LikeController.getInstance().toggle(post);
+            if (shown.isLikedByCurrentUser()) {
+                FeedSignals.getInstance(context).recordInteraction(post.getUserId());
             }
+            bindCounts(holder, shown);
+            holder.btnLike.setOnClickListener(v -> toggleLike(shown, holder));
         } catch (Exception e) {
             // Handle like toggle errors
         }
@@ -172,6 +211,7 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
         try {
             Intent intent = new Intent(context, CommentsActivity.class);
             intent.putExtra("postId", post.getId());
+            intent.putExtra("postAuthorId", post.getUserId());
             context.startActivity(intent);
         } catch (Exception e) {
             // Handle intent errors
@@ -190,10 +230,15 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
 
     @Override
     public int getItemCount() {
-        return posts.size();
+        return differ.getCurrentList().size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return stableIds.of(differ.getCurrentList().get(position).getId());
     }
 
-    class PostViewHolder extends RecyclerView.ViewHolder {
+    static class PostViewHolder extends RecyclerView.ViewHolder {
         ImageView ivPostImage, ivUserProfile;
         TextView tvUsername, tvCaption, tvLikeCount, tvCommentCount,tvUsernameCaption;
         MaterialButton btnLike, btnComment;
@@ -210,6 +255,8 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
                 tvCommentCount = itemView.findViewById(R.id.tvCommentCount);
                 btnLike = itemView.findViewById(R.id.btnLike);
                 btnComment = itemView.findViewById(R.id.btnComment);
+                PostTextCache.getInstance().rememberStyles(tvUsername, tvUsernameCaption, tvCaption,
+                        tvLikeCount, tvCommentCount);
             } catch (Exception e) {
                 // Handle binding errors
             }
@@ -13,10 +13,8 @@ import androidx.appcompat.widget.Toolbar;
 
 import com.bumptech.glide.Glide;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.storage.FirebaseStorage;
-import com.google.firebase.storage.StorageReference;
 
 public class PostDetailActivity extends AppCompatActivity {
 
@@ -26,9 +24,9 @@ public class PostDetailActivity extends AppCompatActivity {
     private android.widget.Button btnComment;
 
     private FirebaseFirestore db;
-    private FirebaseStorage storage;
     private String postId;
     private Post currentPost;
+    private int legacyLikeCount;
     private boolean canDelete = false;
     private String currentUserId;
 
@@ -38,7 +36,6 @@ public class PostDetailActivity extends AppCompatActivity {
         setContentView(R.layout.activity_post_detail);
 
         db = FirebaseFirestore.getInstance();
-        storage = FirebaseStorage.getInstance();
         currentUserId = FirebaseAuth.getInstance().getCurrentUser().getUid();
 
         // Get post ID from intent
@@ -81,10 +78,12 @@ public class PostDetailActivity extends AppCompatActivity {
                 .get()
                 .addOnSuccessListener(documentSnapshot -> {
                     if (documentSnapshot.exists()) {
-                        currentPost = documentSnapshot.toObject(Post.class);
+                        currentPost = ModelMapper.toPost(documentSnapshot);
+                        legacyLikeCount = ModelMapper.getStringList(documentSnapshot, "likes").size();
                         if (currentPost != null) {
-                            currentPost.setId(documentSnapshot.getId());
                             updateUI();
+                            recordView();
+                            loadExactCounts();
 
                             // Check if current user can delete this post
                             canDelete = currentPost.getUserId().equals(currentUserId);
@@ -134,7 +133,7 @@ public class PostDetailActivity extends AppCompatActivity {
         // Set post image
         if (currentPost.getImageUrl() != null && !currentPost.getImageUrl().isEmpty()) {
             Glide.with(this)
-                    .load(currentPost.getImageUrl())
+                    .load(currentPost.imageUrlFor(getResources().getDisplayMetrics().widthPixels))
                     .placeholder(R.drawable.placeholder_image)
                     .error(R.drawable.placeholder_image)
                     .into(ivPostImage);
@@ -154,16 +153,37 @@ public class PostDetailActivity extends AppCompatActivity {
         }
 
         // Set like count
-        int likeCount = currentPost.getLikes() != null ? currentPost.getLikes().size() : 0;
-        tvLikeCount.setText(likeCount + " likes");
+        tvLikeCount.setText(currentPost.getLikeCount() + " likes");
 
         // Set comment count
         tvCommentCount.setText(currentPost.getCommentCount() + " comments");
     }
 
+    private void recordView() {
+        DocumentReference postRef = db.collection(Constants.COLLECTION_POSTS).document(postId);
+        ShardedCounter.getInstance().increment(postRef, "viewCount", 1);
+    }
+
+    /**
+     * The post document only holds rolled-up counts; add what is still in the shards
+     */
+    private void loadExactCounts() {
+        DocumentReference postRef = db.collection(Constants.COLLECTION_POSTS).document(postId);
+        ShardedCounter counter = ShardedCounter.getInstance();
+        counter.getTotal(postRef, "likeCount").addOnSuccessListener(this, total -> {
+            // Likers still in a legacy "likes" array are not part of the counter
+            tvLikeCount.setText((total + legacyLikeCount) + " likes");
+        });
+        counter.getTotal(postRef, "commentCount").addOnSuccessListener(this, total ->
+                tvCommentCount.setText(total + " comments"));
+    }
+
     private void openComments() {
         Intent intent = new Intent(this, CommentsActivity.class);
         intent.putExtra("postId", postId);
+        if (currentPost != null) {
+            intent.putExtra("postAuthorId", currentPost.getUserId());
+        }
         startActivity(intent);
     }
 
@@ -206,36 +226,8 @@ public class PostDetailActivity extends AppCompatActivity {
             return;
         }
 
-        // Delete from Firestore
-        db.collection(Constants.COLLECTION_POSTS).document(postId)
-                .delete()
-                .addOnSuccessListener(aVoid -> {
-                    // Delete image from Storage if exists
-                    if (currentPost.getImageUrl() != null && !currentPost.getImageUrl().isEmpty()) {
-                        StorageReference imageRef = storage.getReferenceFromUrl(currentPost.getImageUrl());
-                        imageRef.delete();
-                    }
-
-                    // Delete comments for this post
-                    db.collection(Constants.COLLECTION_COMMENTS)
-                            .whereEqualTo("postId", postId)
-                            .get()
-                            .addOnSuccessListener(querySnapshot -> {
-                                for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                                    doc.getReference().delete();
-                                }
-                            });
-
-                    // Delete likes for this post
-                    db.collection(Constants.COLLECTION_LIKES)
-                            .whereEqualTo("postId", postId)
-                            .get()
-                            .addOnSuccessListener(querySnapshot -> {
-                                for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                                    doc.getReference().delete();
-                                }
-                            });
-
+        FirebaseHelper.deletePost(postId, currentPost)
+                .addOnSuccessListener(result -> {
                     Toast.makeText(this, "Post deleted successfully", Toast.LENGTH_SHORT).show();
 
                     // Return to previous screen
@@ -0,0 +1,52 @@
+package com.example.socialapp;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+
+import java.util.Objects;
+
+/**
+ * Diff rules shared by the post adapters. Rows whose only change is a like or
+ * comment count get a payload so the holder can skip reloading images.
+ */
+public class PostDiffCallback extends DiffUtil.ItemCallback<Post> {
+
+    public static final String PAYLOAD_COUNTS = "payload_counts";
+
+    @Override
+    public boolean areItemsTheSame(@NonNull Post oldItem, @NonNull Post newItem) {
+        return Objects.equals(oldItem.getId(), newItem.getId());
+    }
+
+    @Override
+    public boolean areContentsTheSame(@NonNull Post oldItem, @NonNull Post newItem) {
+        // Unchanged documents keep their Post instance between snapshots
+        if (oldItem == newItem) return true;
+        return sameDisplayFields(oldItem, newItem) && sameCounts(oldItem, newItem);
+    }
+
+    @Nullable
+    @Override
+    public Object getChangePayload(@NonNull Post oldItem, @NonNull Post newItem) {
+        if (sameDisplayFields(oldItem, newItem)) {
+            return PAYLOAD_COUNTS;
+        }
+        return null;
+    }
+
+    private static boolean sameDisplayFields(Post a, Post b) {
+        return Objects.equals(a.getUserId(), b.getUserId())
+                && Objects.equals(a.getUsername(), b.getUsername())
+                && Objects.equals(a.getImageUrl(), b.getImageUrl())
+                && Objects.equals(a.getProfileImageUrl(), b.getProfileImageUrl())
+                && Objects.equals(a.getCaption(), b.getCaption())
+                && Objects.equals(a.getTimestamp(), b.getTimestamp());
+    }
+
+    private static boolean sameCounts(Post a, Post b) {
+        return a.getCommentCount() == b.getCommentCount()
+                && a.getLikeCount() == b.getLikeCount()
+                && a.isLikedByCurrentUser() == b.isLikedByCurrentUser();
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.socialapp;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.load.DecodeFormat;
+
+/**
+ * Glide requests for post images, sized to the view they are shown in.
+ * Binding and preloading must build the request here so both hit the same
+ * memory cache entry (the override size is part of the cache key).
+ */
+public class PostImageRequests {
+
+    private PostImageRequests() {}
+
+    /**
+     * Full-width feed image, decoded no larger than the feed row
+     */
+    public static RequestBuilder<Drawable> feed(Context context, RequestManager glide, Post post) {
+        int width = feedWidth(context);
+        return glide.load(post.imageUrlFor(width))
+                .override(width, feedHeight(context))
+                .fitCenter();
+    }
+
+    /**
+     * Center-cropped cell image of an exact size; a quarter-size thumbnail
+     * shows while it decodes. Each uses the smallest rendition covering it.
+     */
+    public static RequestBuilder<Drawable> cell(RequestManager glide, Post post, int width, int height) {
+        int thumbWidth = Math.max(1, width / 4);
+        return glide.load(post.imageUrlFor(width))
+                .override(width, height)
+                .centerCrop()
+                .format(DecodeFormat.PREFER_RGB_565)
+                .thumbnail(glide.load(post.imageUrlFor(thumbWidth))
+                        .override(thumbWidth, Math.max(1, height / 4))
+                        .centerCrop()
+                        .format(DecodeFormat.PREFER_RGB_565));
+    }
+
+    public static int feedWidth(Context context) {
+        return context.getResources().getDisplayMetrics().widthPixels;
+    }
+
+    public static int feedHeight(Context context) {
+        return context.getResources().getDimensionPixelSize(R.dimen.feed_image_height);
+    }
+
+    public static int gridCellWidth(Context context, int spanCount) {
+        return Math.max(1, context.getResources().getDisplayMetrics().widthPixels / spanCount);
+    }
+
+    public static int gridCellHeight(Context context) {
+        return context.getResources().getDimensionPixelSize(R.dimen.grid_image_height);
+    }
+
+    public static int listCellHeight(Context context) {
+        return context.getResources().getDimensionPixelSize(R.dimen.user_post_image_height);
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.socialapp;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageReference;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Uploads a post image as four renditions (full, feed, grid and thumbnail)
+ * under posts/{millis}/. All renditions are scaled from the one bitmap already
+ * in memory and the uploads run in parallel.
+ */
+public class PostImageUploader {
+
+    private static final String TAG = "PostImageUploader";
+
+    public interface UploadCallback {
+        /**
+         * Post fields to store: imageUrl, feedUrl, gridUrl, thumbUrl, imageWidth, imageHeight
+         */
+        void onUploaded(Map<String, Object> imageFields);
+        void onError(String error);
+    }
+
+    private final FirebaseStorage storage;
+
+    public PostImageUploader() {
+        storage = FirebaseStorage.getInstance();
+    }
+
+    /**
+     * Encodes on a background thread; the callback runs on the main thread
+     */
+    public void upload(Bitmap source, UploadCallback callback) {
+        AppExecutors.background().execute(() -> {
+            Bitmap full = scaleToWidth(source, Constants.MAX_IMAGE_WIDTH);
+            // Each rendition is scaled from the previous one, which is cheaper than the source
+            Bitmap feed = scaleToWidth(full, Constants.IMAGE_FEED_WIDTH);
+            Bitmap grid = scaleToWidth(feed, Constants.IMAGE_GRID_WIDTH);
+            Bitmap thumb = scaleToWidth(grid, Constants.IMAGE_THUMB_WIDTH);
+
+            int width = full.getWidth();
+            int height = full.getHeight();
+            byte[] fullData = ImageUtils.bitmapToByteArray(full, Constants.IMAGE_COMPRESSION_QUALITY);
+            byte[] feedData = ImageUtils.bitmapToByteArray(feed, Constants.IMAGE_COMPRESSION_QUALITY);
+            byte[] gridData = ImageUtils.bitmapToByteArray(grid, Constants.IMAGE_COMPRESSION_QUALITY);
+            byte[] thumbData = ImageUtils.bitmapToByteArray(thumb, Constants.IMAGE_COMPRESSION_QUALITY);
+
+            AppExecutors.mainThread().execute(() ->
+                    uploadRenditions(fullData, feedData, gridData, thumbData, width, height, callback));
+        });
+    }
+
+    private void uploadRenditions(byte[] fullData, byte[] feedData, byte[] gridData, byte[] thumbData,
+                                  int width, int height, UploadCallback callback) {
+        StorageReference folder = storage.getReference()
+                .child(Constants.STORAGE_POSTS + "/" + System.currentTimeMillis());
+
+        Task<String> fullUrl = uploadBytes(folder.child("full.jpg"), fullData);
+        Task<String> feedUrl = uploadBytes(folder.child("feed.jpg"), feedData);
+        Task<String> gridUrl = uploadBytes(folder.child("grid.jpg"), gridData);
+        Task<String> thumbUrl = uploadBytes(folder.child("thumb.jpg"), thumbData);
+
+        Tasks.whenAllSuccess(fullUrl, feedUrl, gridUrl, thumbUrl)
+                .addOnSuccessListener(urls -> {
+                    Map<String, Object> fields = new HashMap<>();
+                    fields.put("imageUrl", urls.get(0));
+                    fields.put("feedUrl", urls.get(1));
+                    fields.put("gridUrl", urls.get(2));
+                    fields.put("thumbUrl", urls.get(3));
+                    fields.put("imageWidth", width);
+                    fields.put("imageHeight", height);
+                    callback.onUploaded(fields);
+                })
+                .addOnFailureListener(e -> {
+                    // Don't leave orphaned renditions behind when one of them failed
+                    folder.child("full.jpg").delete();
+                    folder.child("feed.jpg").delete();
+                    folder.child("grid.jpg").delete();
+                    folder.child("thumb.jpg").delete();
+                    callback.onError(e.getMessage());
+                });
+    }
+
+    private static Task<String> uploadBytes(StorageReference ref, byte[] data) {
+        return ref.putBytes(data)
+                .continueWithTask(task -> {
+                    if (!task.isSuccessful()) {
+                        throw task.getException();
+                    }
+                    return ref.getDownloadUrl();
+                })
+                .continueWith(task -> task.getResult().toString());
+    }
+
+    /**
+     * Delete all renditions of a post; posts without renditions only have imageUrl.
+     * URLs that are not in Firebase Storage (e.g. hotlinked images) are skipped.
+     */
+    public static void deleteRenditions(Post post) {
+        FirebaseStorage storage = FirebaseStorage.getInstance();
+        String[] urls = { post.getImageUrl(), post.getFeedUrl(), post.getGridUrl(), post.getThumbUrl() };
+        for (String url : urls) {
+            if (url == null || url.isEmpty()) continue;
+            try {
+                storage.getReferenceFromUrl(url).delete();
+            } catch (IllegalArgumentException e) {
+                Log.w(TAG, "Not a storage URL, skipping delete: " + url);
+            }
+        }
+    }
+
+    private static Bitmap scaleToWidth(Bitmap bitmap, int maxWidth) {
+        if (bitmap.getWidth() <= maxWidth) return bitmap;
+        int height = Math.max(1, Math.round(bitmap.getHeight() * (maxWidth / (float) bitmap.getWidth())));
+        return Bitmap.createScaledBitmap(bitmap, maxWidth, height, true);
+    }
+}
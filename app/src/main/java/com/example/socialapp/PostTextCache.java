@@ -0,0 +1,179 @@
+package com.example.socialapp;
+
+import android.text.SpannableString;
+import android.text.Spanned;
+import android.text.style.ForegroundColorSpan;
+import android.util.LruCache;
+import android.widget.TextView;
+
+import androidx.core.content.ContextCompat;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Measured and styled text for post rows, built during feed ingestion so
+ * binding only hands finished layouts to the TextViews. Hashtag and mention
+ * spans are built once per caption and kept with the post.
+ *
+ * Text can only be precomputed once the row styles are known; they are
+ * read from the first PostViewHolder created. Until then, and whenever a
+ * view's style does not match, plain styled text is used.
+ */
+public class PostTextCache {
+
+    public static final int SLOT_USERNAME = 0;
+    public static final int SLOT_USERNAME_CAPTION = 1;
+    public static final int SLOT_CAPTION = 2;
+    public static final int SLOT_LIKE_COUNT = 3;
+    public static final int SLOT_COMMENT_COUNT = 4;
+    private static final int SLOT_COUNT = 5;
+
+    private static final Pattern TAG_PATTERN = Pattern.compile("[#@][\\p{L}\\p{N}_]+");
+
+    private static PostTextCache instance;
+
+    private final PrecomputedTextCompat.Params[] params = new PrecomputedTextCompat.Params[SLOT_COUNT];
+    private final LruCache<String, PostText> texts = new LruCache<>(Constants.POST_TEXT_CACHE_SIZE);
+    private final LruCache<String, CharSequence> counts = new LruCache<>(Constants.POST_TEXT_CACHE_SIZE);
+    private int tagColor;
+    private boolean paramsKnown = false;
+
+    /**
+     * Display text of one post; the source strings tell whether it is still current
+     */
+    public static class PostText {
+        final String caption;
+        final String username;
+        final CharSequence captionText;
+        final CharSequence usernameText;
+        final CharSequence usernameCaptionText;
+        // False when built before the row styles were known
+        final boolean styled;
+
+        PostText(String caption, String username, CharSequence captionText,
+                 CharSequence usernameText, CharSequence usernameCaptionText, boolean styled) {
+            this.styled = styled;
+            this.caption = caption;
+            this.username = username;
+            this.captionText = captionText;
+            this.usernameText = usernameText;
+            this.usernameCaptionText = usernameCaptionText;
+        }
+    }
+
+    private PostTextCache() {}
+
+    public static synchronized PostTextCache getInstance() {
+        if (instance == null) {
+            instance = new PostTextCache();
+        }
+        return instance;
+    }
+
+    /**
+     * Capture the text styles of a post row; only the first call has any effect
+     */
+    public synchronized void rememberStyles(TextView username, TextView usernameCaption, TextView caption,
+                                            TextView likeCount, TextView commentCount) {
+        if (paramsKnown || username == null || usernameCaption == null || caption == null
+                || likeCount == null || commentCount == null) return;
+        params[SLOT_USERNAME] = TextViewCompat.getTextMetricsParams(username);
+        params[SLOT_USERNAME_CAPTION] = TextViewCompat.getTextMetricsParams(usernameCaption);
+        params[SLOT_CAPTION] = TextViewCompat.getTextMetricsParams(caption);
+        params[SLOT_LIKE_COUNT] = TextViewCompat.getTextMetricsParams(likeCount);
+        params[SLOT_COMMENT_COUNT] = TextViewCompat.getTextMetricsParams(commentCount);
+        tagColor = ContextCompat.getColor(caption.getContext(), R.color.accent_color);
+        paramsKnown = true;
+        // Counts measured without styles would never be replaced otherwise
+        counts.evictAll();
+    }
+
+    /**
+     * Build the text of new or changed posts; called on the ingestion thread
+     */
+    public void prepare(List<Post> posts) {
+        for (Post post : posts) {
+            get(post);
+            count(SLOT_LIKE_COUNT, post.getLikeCount() + " likes");
+            count(SLOT_COMMENT_COUNT, post.getCommentCount() + " comments");
+        }
+    }
+
+    public PostText get(Post post) {
+        String caption = post.getCaption() != null ? post.getCaption() : "";
+        String username = post.getUsername() != null ? post.getUsername() : "";
+        boolean styled;
+        synchronized (this) {
+            styled = paramsKnown;
+        }
+        PostText text = texts.get(post.getId());
+        if (text != null && (text.styled || !styled)
+                && text.caption.equals(caption) && text.username.equals(username)) {
+            return text;
+        }
+        text = new PostText(caption, username,
+                precompute(SLOT_CAPTION, styleTags(caption)),
+                precompute(SLOT_USERNAME, username),
+                precompute(SLOT_USERNAME_CAPTION, username),
+                styled);
+        texts.put(post.getId(), text);
+        return text;
+    }
+
+    public CharSequence count(int slot, String value) {
+        String key = slot + ":" + value;
+        CharSequence text = counts.get(key);
+        if (text == null) {
+            text = precompute(slot, value);
+            counts.put(key, text);
+        }
+        return text;
+    }
+
+    /**
+     * Set text that may be precomputed; falls back to a plain copy when the
+     * view's style differs from the one the text was measured for
+     */
+    public static void bind(TextView view, CharSequence text) {
+        if (text instanceof PrecomputedTextCompat) {
+            try {
+                TextViewCompat.setPrecomputedText(view, (PrecomputedTextCompat) text);
+                return;
+            } catch (IllegalArgumentException e) {
+                view.setText(new SpannableString(text));
+                return;
+            }
+        }
+        view.setText(text);
+    }
+
+    private CharSequence precompute(int slot, CharSequence text) {
+        PrecomputedTextCompat.Params slotParams;
+        synchronized (this) {
+            slotParams = params[slot];
+        }
+        if (slotParams == null || text.length() == 0) return text;
+        return PrecomputedTextCompat.create(text, slotParams);
+    }
+
+    private CharSequence styleTags(String caption) {
+        Matcher matcher = TAG_PATTERN.matcher(caption);
+        if (!matcher.find()) return caption;
+
+        int color;
+        synchronized (this) {
+            if (!paramsKnown) return caption;
+            color = tagColor;
+        }
+        SpannableString styled = new SpannableString(caption);
+        do {
+            styled.setSpan(new ForegroundColorSpan(color), matcher.start(), matcher.end(),
+                    Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        } while (matcher.find());
+        return styled;
+    }
+}
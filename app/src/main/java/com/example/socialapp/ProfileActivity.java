@@ -22,13 +22,16 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.bumptech.glide.Glide;
 import com.bumptech.glide.load.resource.bitmap.CircleCrop;
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.storage.FirebaseStorage;
 import com.google.firebase.storage.StorageReference;
 
 import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -47,7 +50,10 @@ public class ProfileActivity extends AppCompatActivity {
     private Toolbar toolbar;
 
     private UserPostAdapter userPostAdapter;
-    private List<Post> userPosts;
+    private List<Post> userPosts = new ArrayList<>();
+    private FeedPager postsPager;
+    private ListenerRegistration statsRegistration;
+    private boolean statsBackfillRequested = false;
     private FirebaseFirestore db;
     private FirebaseStorage storage;
     private String currentUserId;
@@ -94,10 +100,12 @@ public class ProfileActivity extends AppCompatActivity {
     }
 
     private void setupRecyclerView() {
-        userPosts = new ArrayList<>();
-        userPostAdapter = new UserPostAdapter(this, userPosts);
-        rvUserPosts.setLayoutManager(new GridLayoutManager(this, 3));
+        userPostAdapter = new UserPostAdapter(this, Constants.PROFILE_GRID_COLUMNS);
+        rvUserPosts.setLayoutManager(new GridLayoutManager(this, Constants.PROFILE_GRID_COLUMNS));
+        rvUserPosts.setRecycledViewPool(RowViewFactory.getInstance().sharedPool());
         rvUserPosts.setAdapter(userPostAdapter);
+        rvUserPosts.addOnScrollListener(new FeedPreloader(userPostAdapter,
+                Constants.PROFILE_PREFETCH_ROWS * Constants.PROFILE_GRID_COLUMNS));
     }
 
     private void openPostDetail(Post post) {
@@ -135,16 +143,11 @@ public class ProfileActivity extends AppCompatActivity {
             return;
         }
 
-        // Delete from Firestore
-        db.collection(Constants.COLLECTION_POSTS).document(post.getId())
-                .delete()
+        FirebaseHelper.deletePost(post.getId(), post)
                 .addOnSuccessListener(aVoid -> {
-                    // Delete image from Storage if exists
-                    if (post.getImageUrl() != null && !post.getImageUrl().isEmpty()) {
-                        StorageReference imageRef = storage.getReferenceFromUrl(post.getImageUrl());
-                        imageRef.delete();
+                    if (postsPager != null) {
+                        postsPager.removePost(post.getId());
                     }
-
                     Toast.makeText(this, "Post deleted successfully", Toast.LENGTH_SHORT).show();
                 })
                 .addOnFailureListener(e -> {
@@ -184,70 +187,65 @@ public class ProfileActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * Newest page live, older pages fetched as the grid scrolls near its end
+     */
     private void loadUserPosts() {
-        db.collection(Constants.COLLECTION_POSTS)
+        Query postsQuery = db.collection(Constants.COLLECTION_POSTS)
                 .whereEqualTo("userId", currentUserId)
-                .orderBy("timestamp", Query.Direction.DESCENDING)
-                .addSnapshotListener((snapshots, e) -> {
+                .orderBy("timestamp", Query.Direction.DESCENDING);
+        postsPager = new FeedPager(postsQuery, Constants.PROFILE_PAGE_SIZE, new FeedPager.Listener() {
+            @Override
+            public void onPostsChanged(List<Post> posts) {
+                userPosts = posts;
+                userPostAdapter.submitList(userPosts, ProfileActivity.this::updateEmptyState);
+            }
+
+            @Override
+            public void onError(String error) {
+                Log.e(TAG, "Error loading user posts: " + error);
+            }
+        });
+        rvUserPosts.addOnScrollListener(postsPager.prefetchListener(
+                Constants.PROFILE_PREFETCH_ROWS * Constants.PROFILE_GRID_COLUMNS));
+        postsPager.start();
+        listenForStats();
+    }
+
+    /**
+     * Post, like and comment totals from the counters on the user document,
+     * which every write path adjusts; one snapshot per change, whichever post
+     * it hit
+     */
+    private void listenForStats() {
+        statsRegistration = db.collection(Constants.COLLECTION_USERS).document(currentUserId)
+                .addSnapshotListener((doc, e) -> {
                     if (e != null) {
-                        Log.e(TAG, "Error loading user posts", e);
+                        Log.e(TAG, "Error loading post stats", e);
                         return;
                     }
-
-                    userPosts.clear();
-                    if (snapshots != null) {
-                        for (com.google.firebase.firestore.DocumentSnapshot doc : snapshots.getDocuments()) {
-                            Post post = doc.toObject(Post.class);
-                            if (post != null) {
-                                post.setId(doc.getId());
-                                userPosts.add(post);
-                            }
-                        }
+                    if (doc == null || isDestroyed()) return;
+                    if (UserStats.hasStats(doc)) {
+                        showPostStats(doc);
+                    } else if (!statsBackfillRequested) {
+                        // Stored counts arrive through this listener
+                        statsBackfillRequested = true;
+                        UserStats.backfill(this)
+                                .addOnFailureListener(error -> Log.e(TAG, "Error computing post stats", error));
                     }
-
-                    Log.d(TAG, "Loaded " + userPosts.size() + " posts");
-                    userPostAdapter.notifyDataSetChanged();
-                    updatePostStats();
-                    updateEmptyState();
                 });
     }
 
-    private void updatePostStats() {
-        tvPostCount.setText(String.valueOf(userPosts.size()));
-
-        // Calculate total likes and comments from embedded lists
-        calculateStatsFromEmbeddedLists();
-    }
-
-    private void calculateStatsFromEmbeddedLists() {
-        int totalLikes = 0;
-        int totalComments = 0;
-
-        Log.d(TAG, "=== CALCULATING STATS FROM EMBEDDED LISTS ===");
-
-        for (int i = 0; i < userPosts.size(); i++) {
-            Post post = userPosts.get(i);
-
-            // Count likes from the likes list
-            int postLikes = 0;
-            if (post.getLikes() != null) {
-                postLikes = post.getLikes().size();
-                totalLikes += postLikes;
-            }
-
-            // Count comments from the comment count
-            int postComments = post.getCommentCount();
-            totalComments += postComments;
-
-            Log.d(TAG, "Post " + (i+1) + " - ID: " + post.getId() +
-                    ", Likes: " + postLikes + ", Comments: " + postComments);
+    private void showPostStats(DocumentSnapshot doc) {
+        long posts = ModelMapper.getLong(doc, UserStats.POSTS_COUNT);
+        long likes = ModelMapper.getLong(doc, UserStats.LIKES_RECEIVED);
+        long comments = ModelMapper.getLong(doc, UserStats.COMMENTS_RECEIVED);
+        tvPostCount.setText(String.valueOf(posts));
+        tvLikeCount.setText(String.valueOf(likes));
+        tvCommentCount.setText(String.valueOf(comments));
+        if (BuildConfig.DEBUG) {
+            Log.d(TAG, "Post stats: posts=" + posts + ", likes=" + likes + ", comments=" + comments);
         }
-
-        Log.d(TAG, "TOTAL - Likes: " + totalLikes + ", Comments: " + totalComments);
-
-        // Update UI
-        tvLikeCount.setText(String.valueOf(totalLikes));
-        tvCommentCount.setText(String.valueOf(totalComments));
     }
 
     private void updateEmptyState() {
@@ -322,8 +320,9 @@ public class ProfileActivity extends AppCompatActivity {
     }
 
     private void saveProfileImageUrl(String imageUrl) {
-        db.collection(Constants.COLLECTION_USERS).document(currentUserId)
-                .update("profileImageUrl", imageUrl)
+        // Bumps the profile version and refreshes the copies on recent posts and comments
+        AuthorSnapshots.updateProfile(this, currentUserId,
+                        Collections.singletonMap(AuthorSnapshots.AVATAR_URL, imageUrl))
                 .addOnSuccessListener(aVoid -> {
                     btnChangePhoto.setEnabled(true);
                     Toast.makeText(this, "Profile picture updated!", Toast.LENGTH_SHORT).show();
@@ -362,8 +361,7 @@ public class ProfileActivity extends AppCompatActivity {
         updates.put("username", username);
         updates.put("userId", currentUserId);
 
-        db.collection(Constants.COLLECTION_USERS).document(currentUserId)
-                .set(updates, com.google.firebase.firestore.SetOptions.merge())
+        AuthorSnapshots.updateProfile(this, currentUserId, updates)
                 .addOnSuccessListener(aVoid -> {
                     btnSaveProfile.setEnabled(true);
                     Toast.makeText(this, "Profile saved!", Toast.LENGTH_SHORT).show();
@@ -387,4 +385,15 @@ public class ProfileActivity extends AppCompatActivity {
         }
         return super.onOptionsItemSelected(item);
     }
-}
\ No newline at end of file
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (postsPager != null) {
+            postsPager.stop();
+        }
+        if (statsRegistration != null) {
+            statsRegistration.remove();
+        }
+    }
+}
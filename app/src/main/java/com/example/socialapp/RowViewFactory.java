@@ -0,0 +1,142 @@
+package com.example.socialapp;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Looper;
+import android.util.Log;
+import android.view.ContextThemeWrapper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Creates list rows for the post and comment adapters. Rows can be inflated
+ * ahead of time on a background thread while the main thread is idle, and
+ * all lists showing the same rows share one RecycledViewPool.
+ *
+ * Rows are inflated against the application with the app theme, never an
+ * activity, so holders can outlive the screen that created them. View types
+ * are the row layout ids, which keeps them unique across adapters.
+ */
+public class RowViewFactory {
+
+    public interface HolderCreator<VH extends RecyclerView.ViewHolder> {
+        VH create(View itemView);
+    }
+
+    private static final String TAG = "RowViewFactory";
+    private static RowViewFactory instance;
+
+    private final RecyclerView.RecycledViewPool sharedPool = new RecyclerView.RecycledViewPool();
+    private final Map<Integer, ArrayDeque<RecyclerView.ViewHolder>> prewarmed = new HashMap<>();
+    private Context themedContext;
+    private int nightMode;
+
+    private RowViewFactory() {
+        sharedPool.setMaxRecycledViews(R.layout.item_post, Constants.ROW_POOL_SIZE);
+        sharedPool.setMaxRecycledViews(R.layout.item_user_post, Constants.ROW_POOL_SIZE);
+        sharedPool.setMaxRecycledViews(R.layout.item_user_post_grid, Constants.ROW_POOL_SIZE * 3);
+        sharedPool.setMaxRecycledViews(R.layout.item_comment, Constants.ROW_POOL_SIZE * 2);
+    }
+
+    public static synchronized RowViewFactory getInstance() {
+        if (instance == null) {
+            instance = new RowViewFactory();
+        }
+        return instance;
+    }
+
+    public RecyclerView.RecycledViewPool sharedPool() {
+        return sharedPool;
+    }
+
+    /**
+     * Inflate the first post and comment rows once the main thread goes idle,
+     * e.g. while the splash screen is showing
+     */
+    public void prewarmFeedRows(Context context) {
+        Looper.myQueue().addIdleHandler(() -> {
+            prewarm(context, R.layout.item_post, Constants.ROW_PREWARM_POSTS, PostAdapter.PostViewHolder::new);
+            prewarm(context, R.layout.item_comment, Constants.ROW_PREWARM_COMMENTS, CommentAdapter.CommentViewHolder::new);
+            return false;
+        });
+    }
+
+    public <VH extends RecyclerView.ViewHolder> void prewarm(Context context, int layoutId, int count,
+                                                             HolderCreator<VH> creator) {
+        Context rowContext = rowContext(context);
+        AppExecutors.background().execute(() -> {
+            for (int i = 0; i < count; i++) {
+                synchronized (this) {
+                    // Stop when the context changed or enough rows are already waiting
+                    if (rowContext != themedContext || queue(layoutId).size() >= count) return;
+                }
+                try {
+                    View view = LayoutInflater.from(rowContext)
+                            .inflate(layoutId, new FrameLayout(rowContext), false);
+                    VH holder = creator.create(view);
+                    synchronized (this) {
+                        if (rowContext != themedContext) return;
+                        queue(layoutId).add(holder);
+                    }
+                } catch (Exception e) {
+                    // Some views refuse to inflate off the main thread; rows are then created on demand
+                    Log.w(TAG, "Could not pre-inflate row: " + e.getMessage());
+                    return;
+                }
+            }
+        });
+    }
+
+    /**
+     * A pre-inflated holder if one is waiting, otherwise a freshly inflated one
+     */
+    @SuppressWarnings("unchecked")
+    public <VH extends RecyclerView.ViewHolder> VH create(ViewGroup parent, int layoutId, HolderCreator<VH> creator) {
+        Context rowContext = rowContext(parent.getContext());
+        synchronized (this) {
+            RecyclerView.ViewHolder holder = queue(layoutId).poll();
+            if (holder != null) {
+                return (VH) holder;
+            }
+        }
+        View view = LayoutInflater.from(rowContext).inflate(layoutId, parent, false);
+        return creator.create(view);
+    }
+
+    /**
+     * Application context with the app theme and the caller's night mode.
+     * A night mode change drops rows inflated for the previous one.
+     */
+    private synchronized Context rowContext(Context context) {
+        int currentNightMode = context.getResources().getConfiguration().uiMode
+                & Configuration.UI_MODE_NIGHT_MASK;
+        if (themedContext == null || currentNightMode != nightMode) {
+            Configuration configuration = new Configuration(context.getResources().getConfiguration());
+            ContextThemeWrapper wrapper = new ContextThemeWrapper(
+                    context.getApplicationContext(), R.style.Theme_SocialApp);
+            wrapper.applyOverrideConfiguration(configuration);
+            themedContext = wrapper;
+            nightMode = currentNightMode;
+            prewarmed.clear();
+            sharedPool.clear();
+        }
+        return themedContext;
+    }
+
+    private ArrayDeque<RecyclerView.ViewHolder> queue(int layoutId) {
+        ArrayDeque<RecyclerView.ViewHolder> queue = prewarmed.get(layoutId);
+        if (queue == null) {
+            queue = new ArrayDeque<>();
+            prewarmed.put(layoutId, queue);
+        }
+        return queue;
+    }
+}
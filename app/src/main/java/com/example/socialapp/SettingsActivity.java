@@ -169,6 +169,11 @@ public class SettingsActivity extends AppCompatActivity {
                 .setMessage("Are you sure you want to logout?")
                 .setPositiveButton("Logout", (dialog, which) -> {
                     FirebaseAuth.getInstance().signOut();
+                    FeedSnapshotStore.getInstance(this).clear();
+                    FeedSignals.getInstance(this).clear();
+                    FollowService.getInstance(this).clear();
+                    LikeService.getInstance().clear();
+                    LikeController.getInstance().clear();
                     Intent intent = new Intent(this, LoginActivity.class);
                     intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
                     startActivity(intent);
@@ -0,0 +1,253 @@
+package com.example.socialapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counter spread over COUNTER_SHARDS documents at
+ * {parent}/counters/{field}/shards/{n}, so a hot post can take more than
+ * one write per second. Writers pick a random shard; a rollup later folds
+ * the shard values into the field on the parent document, which is what
+ * feeds read. The exact total is the parent field plus the shards.
+ *
+ * Counters this client wrote to are kept in preferences and folded by one
+ * CounterRollupWorker, so a rollup survives the process being killed. The
+ * parent records when it was last rolled up, and a counter folded by any
+ * client within COUNTER_ROLLUP_DELAY_MS is left for a later run, so a hot
+ * parent sees about one rollup per interval however many clients write.
+ */
+public class ShardedCounter {
+
+    private static final String TAG = "ShardedCounter";
+    private static final String COLLECTION_COUNTERS = "counters";
+    private static final String COLLECTION_SHARDS = "shards";
+    private static final String FIELD_COUNT = "count";
+    private static final String FIELD_ROLLED_UP_AT = "countersRolledUpAt";
+    private static final String PREFS_NAME = "counter_rollups";
+    private static final String ROLLUP_WORK = "counter-rollup";
+
+    private static ShardedCounter instance;
+
+    private final FirebaseFirestore db;
+    private final Random random = new Random();
+    private Context appContext;
+
+    private ShardedCounter() {
+        db = FirebaseFirestore.getInstance();
+    }
+
+    public static synchronized ShardedCounter getInstance() {
+        if (instance == null) {
+            instance = new ShardedCounter();
+        }
+        return instance;
+    }
+
+    /**
+     * Called once from SocialMediaApplication; rollups are only scheduled after it
+     */
+    public static void init(Context context) {
+        getInstance().appContext = context.getApplicationContext();
+    }
+
+    public Task<Void> increment(DocumentReference parent, String field, long delta) {
+        Task<Void> task = randomShard(parent, field)
+                .set(Collections.singletonMap(FIELD_COUNT, FieldValue.increment(delta)), SetOptions.merge());
+        scheduleRollup(parent, field);
+        return task;
+    }
+
+    public void increment(WriteBatch batch, DocumentReference parent, String field, long delta) {
+        batch.set(randomShard(parent, field),
+                Collections.singletonMap(FIELD_COUNT, FieldValue.increment(delta)), SetOptions.merge());
+    }
+
+    public void increment(Transaction transaction, DocumentReference parent, String field, long delta) {
+        transaction.set(randomShard(parent, field),
+                Collections.singletonMap(FIELD_COUNT, FieldValue.increment(delta)), SetOptions.merge());
+    }
+
+    /**
+     * Exact value: the rolled-up parent field plus whatever is still in the shards
+     */
+    public Task<Long> getTotal(DocumentReference parent, String field) {
+        Task<DocumentSnapshot> parentTask = parent.get();
+        Task<QuerySnapshot> shardsTask = shards(parent, field).get();
+        return Tasks.whenAllSuccess(parentTask, shardsTask).continueWith(task -> {
+            long total = ModelMapper.getLong(parentTask.getResult(), field);
+            for (DocumentSnapshot shard : shardsTask.getResult().getDocuments()) {
+                total += ModelMapper.getLong(shard, FIELD_COUNT);
+            }
+            return total;
+        });
+    }
+
+    /**
+     * What the shards hold on top of the parent field, read inside a transaction
+     */
+    public long shardTotal(Transaction transaction, DocumentReference parent, String field)
+            throws FirebaseFirestoreException {
+        long total = 0;
+        for (int i = 0; i < Constants.COUNTER_SHARDS; i++) {
+            total += ModelMapper.getLong(
+                    transaction.get(shards(parent, field).document(String.valueOf(i))), FIELD_COUNT);
+        }
+        return total;
+    }
+
+    /**
+     * Fold the shard values into the parent field in one transaction.
+     * Each shard is decremented by exactly what was added, so increments
+     * racing with the rollup are never lost.
+     */
+    public Task<Void> rollup(DocumentReference parent, String field) {
+        List<DocumentReference> shardRefs = new ArrayList<>();
+        for (int i = 0; i < Constants.COUNTER_SHARDS; i++) {
+            shardRefs.add(shards(parent, field).document(String.valueOf(i)));
+        }
+        return db.runTransaction(transaction -> {
+            long[] counts = new long[shardRefs.size()];
+            long total = 0;
+            for (int i = 0; i < shardRefs.size(); i++) {
+                counts[i] = ModelMapper.getLong(transaction.get(shardRefs.get(i)), FIELD_COUNT);
+                total += counts[i];
+            }
+            if (total == 0) return null;
+
+            transaction.update(parent, field, FieldValue.increment(total),
+                    FIELD_ROLLED_UP_AT, FieldValue.serverTimestamp());
+            for (int i = 0; i < shardRefs.size(); i++) {
+                if (counts[i] != 0) {
+                    transaction.update(shardRefs.get(i), FIELD_COUNT, FieldValue.increment(-counts[i]));
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Remember that the counter needs a rollup and make sure the rollup job is
+     * queued; a burst of writes from this client costs a single fold
+     */
+    public void scheduleRollup(DocumentReference parent, String field) {
+        if (appContext == null) return;
+        String key = parent.getPath() + "#" + field;
+        synchronized (this) {
+            SharedPreferences preferences = preferences();
+            // A new mark keeps the key pending if a running rollup already read its shards
+            preferences.edit().putLong(key, preferences.getLong(key, 0) + 1).apply();
+        }
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(CounterRollupWorker.class)
+                .setInitialDelay(Constants.COUNTER_ROLLUP_DELAY_MS, TimeUnit.MILLISECONDS)
+                .setBackoffCriteria(BackoffPolicy.LINEAR, Constants.COUNTER_ROLLUP_DELAY_MS, TimeUnit.MILLISECONDS)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance(appContext).enqueueUniqueWork(ROLLUP_WORK, ExistingWorkPolicy.KEEP, request);
+    }
+
+    /**
+     * Fold every counter this client marked, blocking; called from
+     * CounterRollupWorker. Returns false while some counter is still pending.
+     */
+    boolean rollupPending() {
+        if (appContext == null) return true;
+        Map<String, Long> marks = new HashMap<>();
+        synchronized (this) {
+            for (Map.Entry<String, ?> entry : preferences().getAll().entrySet()) {
+                if (entry.getValue() instanceof Long) {
+                    marks.put(entry.getKey(), (Long) entry.getValue());
+                }
+            }
+        }
+        for (Map.Entry<String, Long> mark : marks.entrySet()) {
+            String key = mark.getKey();
+            int split = key.lastIndexOf('#');
+            DocumentReference parent = db.document(key.substring(0, split));
+            String field = key.substring(split + 1);
+            try {
+                DocumentSnapshot doc = Tasks.await(parent.get());
+                if (doc.exists()) {
+                    Timestamp rolledUpAt = doc.getTimestamp(FIELD_ROLLED_UP_AT);
+                    if (rolledUpAt != null && Timestamp.now().getSeconds() - rolledUpAt.getSeconds()
+                            < TimeUnit.MILLISECONDS.toSeconds(Constants.COUNTER_ROLLUP_DELAY_MS)) {
+                        // Folded by someone moments ago; look again on the next run
+                        continue;
+                    }
+                    Tasks.await(rollup(parent, field));
+                }
+                // A deleted parent has nothing left to fold
+                clearMark(key, mark.getValue());
+            } catch (ExecutionException e) {
+                Log.w(TAG, "Rollup of " + key + " failed: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        synchronized (this) {
+            return preferences().getAll().isEmpty();
+        }
+    }
+
+    private synchronized void clearMark(String key, long mark) {
+        SharedPreferences preferences = preferences();
+        if (preferences.getLong(key, 0) == mark) {
+            preferences.edit().remove(key).apply();
+        }
+    }
+
+    private SharedPreferences preferences() {
+        return appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Shards are not removed with their parent document; call when deleting it
+     */
+    public void deleteShards(DocumentReference parent, String field) {
+        for (int i = 0; i < Constants.COUNTER_SHARDS; i++) {
+            shards(parent, field).document(String.valueOf(i)).delete();
+        }
+    }
+
+    private DocumentReference randomShard(DocumentReference parent, String field) {
+        return shards(parent, field).document(String.valueOf(random.nextInt(Constants.COUNTER_SHARDS)));
+    }
+
+    private static CollectionReference shards(DocumentReference parent, String field) {
+        return parent.collection(COLLECTION_COUNTERS).document(field).collection(COLLECTION_SHARDS);
+    }
+}
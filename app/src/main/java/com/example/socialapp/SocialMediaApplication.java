@@ -2,6 +2,7 @@ package com.example.socialapp;
 
 import android.app.Application;
 import com.google.firebase.FirebaseApp;
+import com.google.firebase.firestore.FirebaseFirestore;
 
 public class SocialMediaApplication extends Application {
 
@@ -12,6 +13,14 @@ public class SocialMediaApplication extends Application {
         // Initialize Firebase
         FirebaseApp.initializeApp(this);
 
+        // Must happen before the first Firestore call anywhere in the app
+        if (BuildConfig.USE_FIRESTORE_EMULATOR) {
+            FirebaseFirestore.getInstance().useEmulator(
+                    Constants.FIRESTORE_EMULATOR_HOST, Constants.FIRESTORE_EMULATOR_PORT);
+        }
+
+        ShardedCounter.init(this);
+
         // Initialize other SDKs here
         // Example: DeepAR.initialize(this);
     }
@@ -26,6 +26,11 @@ public class SplashActivity extends AppCompatActivity {
 
         mAuth = FirebaseAuth.getInstance();
 
+        // Use the splash delay to inflate the first feed rows in the background
+        if (mAuth.getCurrentUser() != null) {
+            RowViewFactory.getInstance().prewarmFeedRows(this);
+        }
+
         // Delay splash screen for better user experience
         new Handler(Looper.getMainLooper()).postDelayed(new Runnable() {
             @Override
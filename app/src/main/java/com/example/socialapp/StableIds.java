@@ -0,0 +1,65 @@
+package com.example.socialapp;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * RecyclerView stable ids for one adapter, derived from a 64-bit hash of the
+ * document id. Stable ids do not tolerate collisions, so a colliding id
+ * probes to the next free value; only ids of the adapter's current list are
+ * remembered. Main thread only.
+ */
+public class StableIds {
+
+    private final Map<String, Long> ids = new HashMap<>();
+    private final Map<Long, String> owners = new HashMap<>();
+
+    public long of(String key) {
+        if (key == null) return RecyclerView.NO_ID;
+        Long id = ids.get(key);
+        if (id != null) return id;
+
+        long candidate = hash64(key);
+        while (candidate == RecyclerView.NO_ID || owners.containsKey(candidate)) {
+            candidate++;
+        }
+        ids.put(key, candidate);
+        owners.put(candidate, key);
+        return candidate;
+    }
+
+    /**
+     * Forget ids of posts that left the list, so memory follows the list
+     * size rather than every post ever shown
+     */
+    public void retain(List<Post> posts) {
+        Set<String> current = new HashSet<>();
+        for (Post post : posts) {
+            current.add(post.getId());
+        }
+        Iterator<Map.Entry<String, Long>> it = ids.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Long> entry = it.next();
+            if (!current.contains(entry.getKey())) {
+                owners.remove(entry.getValue());
+                it.remove();
+            }
+        }
+    }
+
+    // FNV-1a
+    private static long hash64(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.socialapp;
+
+import android.os.SystemClock;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.AggregateField;
+import com.google.firebase.firestore.AggregateQuerySnapshot;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.Source;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Counts and sums computed by Firestore aggregation queries, for places
+ * that only need a number. An aggregation is billed as one read per batch
+ * of up to 1000 index entries and transfers no documents.
+ *
+ * Results are cached for STATS_CACHE_TTL_MS under a key naming the query;
+ * writers that change a result call invalidate() with the same key.
+ */
+public class StatsQueryService {
+
+    /**
+     * Totals over one user's posts, from a single aggregation
+     */
+    public static class PostStats {
+        public final long posts;
+        public final long likes;
+        public final long comments;
+
+        PostStats(long posts, long likes, long comments) {
+            this.posts = posts;
+            this.likes = likes;
+            this.comments = comments;
+        }
+    }
+
+    private static class Entry {
+        final Object value;
+        final long loadedAt;
+
+        Entry(Object value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private static StatsQueryService instance;
+
+    private final FirebaseFirestore db;
+    private final Map<String, Entry> cache = new HashMap<>();
+    private final Map<String, Task<?>> inFlight = new HashMap<>();
+
+    private StatsQueryService() {
+        db = FirebaseFirestore.getInstance();
+    }
+
+    public static synchronized StatsQueryService getInstance() {
+        if (instance == null) {
+            instance = new StatsQueryService();
+        }
+        return instance;
+    }
+
+    /**
+     * Number of posts by the user plus the likes and comments on them. Likes
+     * are counted as ModelMapper.toPost counts them: likeCount plus the
+     * legacy likes array, which a sum cannot see, so the posts still holding
+     * one are read. Counts still waiting in counter shards are not included.
+     */
+    public Task<PostStats> postStats(String userId) {
+        AggregateField likes = AggregateField.sum("likeCount");
+        AggregateField comments = AggregateField.sum("commentCount");
+        Query posts = db.collection(Constants.COLLECTION_POSTS).whereEqualTo("userId", userId);
+        return load(postStatsKey(userId), () -> {
+            Task<AggregateQuerySnapshot> totals = posts
+                    .aggregate(AggregateField.count(), likes, comments)
+                    .get(AggregateSource.SERVER);
+            Task<QuerySnapshot> legacy = posts
+                    .whereNotEqualTo(ModelMapper.LEGACY_LIKES, null)
+                    .get(Source.SERVER);
+            return Tasks.whenAllSuccess(totals, legacy).continueWith(task -> {
+                AggregateQuerySnapshot snapshot = totals.getResult();
+                long legacyLikes = 0;
+                for (DocumentSnapshot doc : legacy.getResult().getDocuments()) {
+                    legacyLikes += ModelMapper.legacyLikers(doc).size();
+                }
+                return new PostStats(snapshot.getCount(),
+                        valueOf(snapshot.getLong(likes)) + legacyLikes, valueOf(snapshot.getLong(comments)));
+            });
+        });
+    }
+
+    public Task<Long> commentsMade(String userId) {
+        return count("commentsMade:" + userId,
+                db.collectionGroup(Constants.COLLECTION_COMMENTS).whereEqualTo("userId", userId));
+    }
+
+    public Task<Long> followers(String userId) {
+        return count("followers:" + userId,
+                db.collection("followers").document(userId).collection("userFollowers"));
+    }
+
+    /**
+     * Complete for the current user once FollowService has migrated their
+     * legacy follows to the following index
+     */
+    public Task<Long> following(String userId) {
+        return count(followingKey(userId),
+                db.collection("following").document(userId).collection("userFollowing"));
+    }
+
+    /**
+     * Number of documents matching the query, cached under key
+     */
+    public Task<Long> count(String key, Query query) {
+        return load(key, () -> query.count()
+                .get(AggregateSource.SERVER)
+                .continueWith(task -> task.getResult().getCount()));
+    }
+
+    public synchronized void invalidate(String key) {
+        cache.remove(key);
+        // A query already running may have missed the change
+        inFlight.remove(key);
+    }
+
+    public void invalidatePostStats(String userId) {
+        invalidate(postStatsKey(userId));
+    }
+
+    public void invalidateFollowing(String userId) {
+        invalidate(followingKey(userId));
+    }
+
+    private interface Loader<T> {
+        Task<T> load();
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized <T> Task<T> load(String key, Loader<T> loader) {
+        Entry entry = cache.get(key);
+        if (entry != null && SystemClock.elapsedRealtime() - entry.loadedAt < Constants.STATS_CACHE_TTL_MS) {
+            return Tasks.forResult((T) entry.value);
+        }
+        // Callers asking for the same number while it loads share one query
+        Task<T> pending = (Task<T>) inFlight.get(key);
+        if (pending != null) return pending;
+
+        Task<T> task = loader.load();
+        inFlight.put(key, task);
+        task.addOnCompleteListener(done -> {
+            synchronized (this) {
+                if (inFlight.get(key) != task) return;
+                inFlight.remove(key);
+                if (done.isSuccessful()) {
+                    cache.put(key, new Entry(done.getResult(), SystemClock.elapsedRealtime()));
+                }
+            }
+        });
+        return task;
+    }
+
+    private static String postStatsKey(String userId) {
+        return "posts:" + userId;
+    }
+
+    private static String followingKey(String userId) {
+        return "following:" + userId;
+    }
+
+    private static long valueOf(Long value) {
+        return value != null ? value : 0;
+    }
+}
@@ -0,0 +1,240 @@
+package com.example.socialapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Personal home timelines at timelines/{uid}/items/{postId}. Each item is a
+ * compact reference (postId, userId, timestamp) that FeedPager resolves to
+ * the post itself.
+ *
+ * A new post is written into the timelines of the author and every follower
+ * (fan-out on write). Authors with more than FANOUT_MAX_FOLLOWERS followers
+ * are listed in largeAccounts instead, and each follower copies their recent
+ * posts into their own timeline when the feed opens (fan-out on read).
+ *
+ * Timelines of accounts that existed before fan-out are backfilled once from
+ * the posts of the user and everyone they follow; until then the home feed
+ * shows the global posts collection.
+ */
+public class TimelineService {
+
+    private static final String TAG = "TimelineService";
+    private static final String PREFS_NAME = "timeline_backfill";
+    private static TimelineService instance;
+
+    private final FirebaseFirestore db;
+
+    private TimelineService() {
+        db = FirebaseFirestore.getInstance();
+    }
+
+    public static synchronized TimelineService getInstance() {
+        if (instance == null) {
+            instance = new TimelineService();
+        }
+        return instance;
+    }
+
+    /**
+     * Newest items of the user's timeline first
+     */
+    public Query timelineQuery(String userId) {
+        return items(userId).orderBy("timestamp", Query.Direction.DESCENDING);
+    }
+
+    /**
+     * Write a new post into the author's and the followers' timelines
+     */
+    public void fanOut(String postId, String authorId, Timestamp timestamp) {
+        Map<String, Object> item = item(postId, authorId, timestamp);
+        items(authorId).document(postId).set(item);
+
+        db.collection("followers").document(authorId).collection("userFollowers")
+                .limit(Constants.FANOUT_MAX_FOLLOWERS + 1)
+                .get()
+                .addOnSuccessListener(AppExecutors.background(), querySnapshot -> {
+                    if (querySnapshot.size() > Constants.FANOUT_MAX_FOLLOWERS) {
+                        markLargeAccount(authorId);
+                        return;
+                    }
+                    List<DocumentReference> targets = new ArrayList<>();
+                    for (DocumentSnapshot follower : querySnapshot.getDocuments()) {
+                        targets.add(items(follower.getId()).document(postId));
+                    }
+                    commitInBatches(targets, item);
+                })
+                .addOnFailureListener(e -> Log.w(TAG, "Fan-out of " + postId + " failed: " + e.getMessage()));
+    }
+
+    /**
+     * Copy the recent posts of these authors into the user's own timeline;
+     * used when following someone and for followed large accounts
+     */
+    public Task<Void> pullAuthors(String userId, Collection<String> authorIds) {
+        return pullAuthors(userId, authorIds, Constants.FEED_PAGE_SIZE);
+    }
+
+    /**
+     * Whether the user's timeline holds the posts of everyone they follow
+     */
+    public boolean isBackfilled(Context context, String userId) {
+        return backfillPreferences(context).getBoolean(userId, false);
+    }
+
+    /**
+     * Fill the timeline of an account from before fan-out with the recent
+     * posts of the user and the followed authors, once per user on this device.
+     * followedIds has to include follows from before the following index.
+     */
+    public void backfill(Context context, String userId, Collection<String> followedIds) {
+        SharedPreferences preferences = backfillPreferences(context);
+        if (preferences.getBoolean(userId, false)) return;
+        Set<String> authorIds = new LinkedHashSet<>(followedIds);
+        authorIds.add(userId);
+        pullAuthors(userId, authorIds, Constants.TIMELINE_BACKFILL_POSTS)
+                .addOnSuccessListener(aVoid -> preferences.edit().putBoolean(userId, true).apply());
+    }
+
+    private Task<Void> pullAuthors(String userId, Collection<String> authorIds, int limit) {
+        List<String> ids = new ArrayList<>(authorIds);
+        List<Task<Void>> pulls = new ArrayList<>();
+        for (int start = 0; start < ids.size(); start += Constants.FIRESTORE_WHERE_IN_LIMIT) {
+            List<String> chunk = ids.subList(start, Math.min(start + Constants.FIRESTORE_WHERE_IN_LIMIT, ids.size()));
+            pulls.add(db.collection(Constants.COLLECTION_POSTS)
+                    .whereIn("userId", new ArrayList<>(chunk))
+                    .orderBy("timestamp", Query.Direction.DESCENDING)
+                    .limit(limit)
+                    .get()
+                    .continueWithTask(AppExecutors.background(), task -> {
+                        if (!task.isSuccessful()) return Tasks.forException(task.getException());
+                        List<DocumentSnapshot> posts = task.getResult().getDocuments();
+                        List<Task<Void>> commits = new ArrayList<>();
+                        for (int first = 0; first < posts.size(); first += Constants.FIRESTORE_BATCH_LIMIT) {
+                            WriteBatch batch = db.batch();
+                            for (DocumentSnapshot post : posts.subList(first, Math.min(first + Constants.FIRESTORE_BATCH_LIMIT, posts.size()))) {
+                                batch.set(items(userId).document(post.getId()),
+                                        item(post.getId(), post.getString("userId"), post.getTimestamp("timestamp")),
+                                        SetOptions.merge());
+                            }
+                            commits.add(batch.commit());
+                        }
+                        return Tasks.whenAll(commits);
+                    })
+                    .addOnFailureListener(e -> Log.w(TAG, "Pulling posts failed: " + e.getMessage())));
+        }
+        return Tasks.whenAll(pulls);
+    }
+
+    /**
+     * Pull the recent posts of the followed authors that are not fanned out on write
+     */
+    public void pullLargeAccounts(String userId, Collection<String> followedIds) {
+        List<String> ids = new ArrayList<>(followedIds);
+        for (int start = 0; start < ids.size(); start += Constants.FIRESTORE_WHERE_IN_LIMIT) {
+            List<String> chunk = ids.subList(start, Math.min(start + Constants.FIRESTORE_WHERE_IN_LIMIT, ids.size()));
+            db.collection(Constants.COLLECTION_LARGE_ACCOUNTS)
+                    .whereIn(FieldPath.documentId(), new ArrayList<>(chunk))
+                    .get()
+                    .addOnSuccessListener(querySnapshot -> {
+                        List<String> largeIds = new ArrayList<>();
+                        for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
+                            largeIds.add(doc.getId());
+                        }
+                        if (!largeIds.isEmpty()) {
+                            pullAuthors(userId, largeIds);
+                        }
+                    });
+        }
+    }
+
+    /**
+     * Remove an author's posts from the user's timeline after unfollowing
+     */
+    public void removeAuthor(String userId, String authorId) {
+        items(userId).whereEqualTo("userId", authorId)
+                .get()
+                .addOnSuccessListener(AppExecutors.background(), querySnapshot -> deleteInBatches(querySnapshot));
+    }
+
+    /**
+     * Remove a deleted post from every timeline holding it
+     */
+    public void removePost(String postId) {
+        db.collectionGroup(Constants.COLLECTION_TIMELINE_ITEMS)
+                .whereEqualTo("postId", postId)
+                .get()
+                .addOnSuccessListener(AppExecutors.background(), querySnapshot -> deleteInBatches(querySnapshot))
+                .addOnFailureListener(e -> Log.w(TAG, "Removing " + postId + " from timelines failed: " + e.getMessage()));
+    }
+
+    private static SharedPreferences backfillPreferences(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    private void markLargeAccount(String authorId) {
+        Map<String, Object> account = new HashMap<>();
+        account.put("userId", authorId);
+        account.put("since", Timestamp.now());
+        db.collection(Constants.COLLECTION_LARGE_ACCOUNTS).document(authorId).set(account);
+    }
+
+    private void commitInBatches(List<DocumentReference> targets, Map<String, Object> item) {
+        List<Task<Void>> commits = new ArrayList<>();
+        for (int start = 0; start < targets.size(); start += Constants.FIRESTORE_BATCH_LIMIT) {
+            WriteBatch batch = db.batch();
+            for (DocumentReference target : targets.subList(start, Math.min(start + Constants.FIRESTORE_BATCH_LIMIT, targets.size()))) {
+                batch.set(target, item);
+            }
+            commits.add(batch.commit());
+        }
+        Tasks.whenAll(commits)
+                .addOnFailureListener(e -> Log.w(TAG, "Timeline fan-out incomplete: " + e.getMessage()));
+    }
+
+    private void deleteInBatches(QuerySnapshot querySnapshot) {
+        List<DocumentSnapshot> documents = querySnapshot.getDocuments();
+        for (int start = 0; start < documents.size(); start += Constants.FIRESTORE_BATCH_LIMIT) {
+            WriteBatch batch = db.batch();
+            for (DocumentSnapshot doc : documents.subList(start, Math.min(start + Constants.FIRESTORE_BATCH_LIMIT, documents.size()))) {
+                batch.delete(doc.getReference());
+            }
+            batch.commit();
+        }
+    }
+
+    private CollectionReference items(String userId) {
+        return db.collection(Constants.COLLECTION_TIMELINES).document(userId)
+                .collection(Constants.COLLECTION_TIMELINE_ITEMS);
+    }
+
+    private static Map<String, Object> item(String postId, String authorId, Timestamp timestamp) {
+        Map<String, Object> item = new HashMap<>();
+        item.put("postId", postId);
+        item.put("userId", authorId);
+        item.put("timestamp", timestamp);
+        return item;
+    }
+}
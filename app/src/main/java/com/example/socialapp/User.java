@@ -6,6 +6,14 @@ public class User {
     private String profileImageUrl;
     private String phoneNumber;
     private String bio;
+    // Aggregate counts maintained by the write paths, see UserStats
+    private long postsCount;
+    private long likesReceived;
+    private long commentsMade;
+    private long followersCount;
+    private long followingCount;
+    // Goes up with every username or avatar change, see AuthorSnapshots
+    private long avatarVersion;
 
     public User() {}
 
@@ -44,4 +52,22 @@ public class User {
 
     public String getBio() { return bio; }
     public void setBio(String bio) { this.bio = bio; }
+
+    public long getPostsCount() { return postsCount; }
+    public void setPostsCount(long postsCount) { this.postsCount = postsCount; }
+
+    public long getLikesReceived() { return likesReceived; }
+    public void setLikesReceived(long likesReceived) { this.likesReceived = likesReceived; }
+
+    public long getCommentsMade() { return commentsMade; }
+    public void setCommentsMade(long commentsMade) { this.commentsMade = commentsMade; }
+
+    public long getFollowersCount() { return followersCount; }
+    public void setFollowersCount(long followersCount) { this.followersCount = followersCount; }
+
+    public long getFollowingCount() { return followingCount; }
+    public void setFollowingCount(long followingCount) { this.followingCount = followingCount; }
+
+    public long getAvatarVersion() { return avatarVersion; }
+    public void setAvatarVersion(long avatarVersion) { this.avatarVersion = avatarVersion; }
 }
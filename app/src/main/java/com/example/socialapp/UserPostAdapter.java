@@ -1,56 +1,86 @@
 package com.example.socialapp;
 
 import android.content.Context;
-import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
 import com.google.android.material.button.MaterialButton;
 
 import java.util.List;
 
-public class UserPostAdapter extends RecyclerView.Adapter<UserPostAdapter.UserPostViewHolder> {
+public class UserPostAdapter extends RecyclerView.Adapter<UserPostAdapter.UserPostViewHolder>
+        implements FeedPreloader.RequestProvider {
 
     private Context context;
-    private List<Post> posts;
-
-    public UserPostAdapter(Context context, List<Post> posts) {
+    private final RequestManager glide;
+    private final AsyncListDiffer<Post> differ;
+    private final StableIds stableIds = new StableIds();
+    // More than one column shows compact grid cells (item_user_post_grid)
+    private final int spanCount;
+    private final int imageWidth;
+    private final int imageHeight;
+
+    public UserPostAdapter(Context context, int spanCount) {
         this.context = context;
-        this.posts = posts;
+        this.glide = Glide.with(context);
+        this.spanCount = spanCount;
+        this.imageWidth = PostImageRequests.gridCellWidth(context, spanCount);
+        this.imageHeight = spanCount > 1 ?
+                PostImageRequests.gridCellHeight(context) : PostImageRequests.listCellHeight(context);
+        this.differ = new AsyncListDiffer<>(this, new PostDiffCallback());
+        differ.addListListener((previous, current) -> stableIds.retain(current));
+        setHasStableIds(true);
+    }
+
+    public void submitList(List<Post> newPosts, Runnable onCommitted) {
+        differ.submitList(newPosts, onCommitted);
+    }
+
+    public List<Post> getCurrentList() {
+        return differ.getCurrentList();
     }
 
     @NonNull
     @Override
     public UserPostViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View view = LayoutInflater.from(context).inflate(R.layout.item_user_post, parent, false);
-        return new UserPostViewHolder(view);
+        return RowViewFactory.getInstance().create(parent, viewType, UserPostViewHolder::new);
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return spanCount > 1 ? R.layout.item_user_post_grid : R.layout.item_user_post;
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull UserPostViewHolder holder) {
+        holder.ivPostImage.setOnClickListener(null);
+        holder.itemView.setOnClickListener(null);
     }
 
     @Override
     public void onBindViewHolder(@NonNull UserPostViewHolder holder, int position) {
         try {
-            Post post = posts.get(position);
+            Post post = differ.getCurrentList().get(position);
 
-            // Set caption
-            holder.tvCaption.setText(post.getCaption());
+            // Set caption; grid cells have none
+            if (holder.tvCaption != null) {
+                holder.tvCaption.setText(post.getCaption());
+            }
 
-            // Load post image
-            Glide.with(context)
-                    .load(post.getImageUrl())
+            // Load a down-sampled image at the exact cell size
+            PostImageRequests.cell(glide, post, imageWidth, imageHeight)
                     .into(holder.ivPostImage);
 
-            // Set like count
-            holder.tvLikeCount.setText(post.getLikes() != null ?
-                    post.getLikes().size() + " likes" : "0 likes");
-
-            // Set comment count
-            holder.tvCommentCount.setText(post.getCommentCount() + " comments");
+            bindCounts(holder, post);
 
             // Open post detail on image or card click
             View.OnClickListener openDetailListener = v -> {
@@ -67,15 +97,46 @@ public class UserPostAdapter extends RecyclerView.Adapter<UserPostAdapter.UserPo
 
         } catch (Exception e) {
             // Handle binding errors gracefully
-            holder.tvCaption.setText("Unable to load post");
+            if (holder.tvCaption != null) {
+                holder.tvCaption.setText("Unable to load post");
+            }
             holder.tvLikeCount.setText("0 likes");
             holder.tvCommentCount.setText("0 comments");
         }
     }
 
+    @Override
+    public void onBindViewHolder(@NonNull UserPostViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.contains(PostDiffCallback.PAYLOAD_COUNTS)) {
+            bindCounts(holder, differ.getCurrentList().get(position));
+            return;
+        }
+        super.onBindViewHolder(holder, position, payloads);
+    }
+
+    @Override
+    public RequestBuilder<?> getPreloadRequest(int position) {
+        List<Post> posts = differ.getCurrentList();
+        if (position < 0 || position >= posts.size()) return null;
+        return PostImageRequests.cell(glide, posts.get(position), imageWidth, imageHeight);
+    }
+
+    private void bindCounts(UserPostViewHolder holder, Post post) {
+        // Set like count
+        holder.tvLikeCount.setText(post.getLikeCount() + " likes");
+
+        // Set comment count
+        holder.tvCommentCount.setText(post.getCommentCount() + " comments");
+    }
+
     @Override
     public int getItemCount() {
-        return posts.size();
+        return differ.getCurrentList().size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return stableIds.of(differ.getCurrentList().get(position).getId());
     }
 
     static class UserPostViewHolder extends RecyclerView.ViewHolder {
@@ -10,20 +10,20 @@ import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
-import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 import com.bumptech.glide.load.resource.bitmap.CircleCrop;
 import com.bumptech.glide.request.RequestOptions;
+import com.google.android.gms.tasks.Task;
 import com.google.android.material.button.MaterialButton;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Query;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 public class UserProfileActivity extends AppCompatActivity {
 
@@ -38,7 +38,7 @@ public class UserProfileActivity extends AppCompatActivity {
     private MaterialButton btnFollow, btnMessage;
     private RecyclerView rvUserPosts;
     private UserPostAdapter userPostAdapter;
-    private List<Post> userPosts;
+    private FeedPager postsPager;
     private View emptyPostsView;
 
     @Override
@@ -63,7 +63,6 @@ public class UserProfileActivity extends AppCompatActivity {
         initViews();
         setupToolbar();
         loadUserProfile();
-        loadUserStats();
         loadUserPosts();
         setupButtons();
     }
@@ -80,10 +79,12 @@ public class UserProfileActivity extends AppCompatActivity {
         emptyPostsView = findViewById(R.id.emptyPostsView);
 
         // Setup RecyclerView
-        userPosts = new ArrayList<>();
-        userPostAdapter = new UserPostAdapter(this, userPosts);
-        rvUserPosts.setLayoutManager(new LinearLayoutManager(this));
+        userPostAdapter = new UserPostAdapter(this, Constants.PROFILE_GRID_COLUMNS);
+        rvUserPosts.setLayoutManager(new GridLayoutManager(this, Constants.PROFILE_GRID_COLUMNS));
+        rvUserPosts.setRecycledViewPool(RowViewFactory.getInstance().sharedPool());
         rvUserPosts.setAdapter(userPostAdapter);
+        rvUserPosts.addOnScrollListener(new FeedPreloader(userPostAdapter,
+                Constants.PROFILE_PREFETCH_ROWS * Constants.PROFILE_GRID_COLUMNS));
     }
 
     private void setupToolbar() {
@@ -95,120 +96,127 @@ public class UserProfileActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * One read of the user document fills the header and the stats; a cached
+     * profile is shown while it is in flight
+     */
     private void loadUserProfile() {
-        db.collection("users").document(targetUserId)
+        User cached = UserProfileCache.getInstance().peek(targetUserId);
+        if (cached != null) {
+            showUser(cached);
+        }
+        db.collection(Constants.COLLECTION_USERS).document(targetUserId)
                 .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        String username = documentSnapshot.getString("username");
-                        String profileImageUrl = documentSnapshot.getString("profileImageUrl");
-
-                        // Set username
-                        if (username != null && !username.isEmpty()) {
-                            tvUsername.setText(username);
-                        } else {
-                            tvUsername.setText("Unknown User");
-                        }
-
-                        // Load profile image
-                        if (profileImageUrl != null && !profileImageUrl.isEmpty()) {
-                            Glide.with(this)
-                                    .load(profileImageUrl)
-                                    .apply(RequestOptions.bitmapTransform(new CircleCrop()))
-                                    .placeholder(R.drawable.ic_person)
-                                    .error(R.drawable.ic_person)
-                                    .into(ivProfileImage);
-                        } else {
-                            ivProfileImage.setImageResource(R.drawable.ic_person);
-                        }
-                    } else {
+                .addOnSuccessListener(doc -> {
+                    if (isFinishing() || isDestroyed()) return;
+                    if (!doc.exists()) {
                         Toast.makeText(this, "User not found", Toast.LENGTH_SHORT).show();
                         finish();
+                        return;
+                    }
+                    User user = ModelMapper.toUser(doc);
+                    UserProfileCache.getInstance().put(user);
+                    showUser(user);
+                    if (UserStats.hasStats(doc)) {
+                        showUserStats(user.getPostsCount(), user.getLikesReceived(), user.getCommentsMade());
+                    } else {
+                        loadLegacyStats();
                     }
                 })
                 .addOnFailureListener(e -> {
-                    Toast.makeText(this, "Error loading user profile: " + e.getMessage(), 
+                    if (isFinishing() || isDestroyed()) return;
+                    Toast.makeText(this, "Error loading user profile: " + e.getMessage(),
                             Toast.LENGTH_SHORT).show();
                     finish();
                 });
     }
 
-    private void loadUserStats() {
-        // Load post count
-        db.collection(Constants.COLLECTION_POSTS)
-                .whereEqualTo("userId", targetUserId)
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    int postCount = querySnapshot.size();
-                    tvPostCount.setText(String.valueOf(postCount));
-                })
-                .addOnFailureListener(e -> {
-                    tvPostCount.setText("0");
-                });
+    private void showUser(User user) {
+        String username = user.getUsername();
+        String profileImageUrl = user.getProfileImageUrl();
 
-        // Load total likes received (sum of all likes on user's posts)
-        db.collection(Constants.COLLECTION_POSTS)
-                .whereEqualTo("userId", targetUserId)
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    int totalLikes = 0;
-                    for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                        List<String> likes = (List<String>) doc.get("likes");
-                        if (likes != null) {
-                            totalLikes += likes.size();
-                        }
-                    }
-                    tvLikesReceived.setText(String.valueOf(totalLikes));
-                })
-                .addOnFailureListener(e -> {
-                    tvLikesReceived.setText("0");
-                });
+        // Set username
+        if (username != null && !username.isEmpty()) {
+            tvUsername.setText(username);
+        } else {
+            tvUsername.setText("Unknown User");
+        }
 
-        // Load comments made count
-        db.collection(Constants.COLLECTION_COMMENTS)
-                .whereEqualTo("userId", targetUserId)
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    int commentCount = querySnapshot.size();
-                    tvCommentsMade.setText(String.valueOf(commentCount));
+        // Load profile image
+        if (profileImageUrl != null && !profileImageUrl.isEmpty()) {
+            Glide.with(this)
+                    .load(profileImageUrl)
+                    .apply(RequestOptions.bitmapTransform(new CircleCrop()))
+                    .placeholder(R.drawable.ic_person)
+                    .error(R.drawable.ic_person)
+                    .into(ivProfileImage);
+        } else {
+            ivProfileImage.setImageResource(R.drawable.ic_person);
+        }
+    }
+
+    private void showUserStats(long postCount, long likesReceived, long commentsMade) {
+        tvPostCount.setText(String.valueOf(postCount));
+        tvLikesReceived.setText(String.valueOf(likesReceived));
+        tvCommentsMade.setText(String.valueOf(commentsMade));
+    }
+
+    /**
+     * Users from before the stats fields get them computed; only the user
+     * themselves stores the result
+     */
+    private void loadLegacyStats() {
+        Task<Map<String, Object>> legacyStats = targetUserId.equals(currentUserId)
+                ? UserStats.backfill(this) : UserStats.compute(targetUserId);
+        legacyStats
+                .addOnSuccessListener(stats -> {
+                    if (isDestroyed()) return;
+                    showUserStats((long) stats.get(UserStats.POSTS_COUNT),
+                            (long) stats.get(UserStats.LIKES_RECEIVED),
+                            (long) stats.get(UserStats.COMMENTS_MADE));
                 })
                 .addOnFailureListener(e -> {
-                    tvCommentsMade.setText("0");
+                    if (isDestroyed()) return;
+                    showUserStats(0, 0, 0);
                 });
     }
 
+    /**
+     * Newest page live, older pages fetched as the grid scrolls near its end
+     */
     private void loadUserPosts() {
-        db.collection(Constants.COLLECTION_POSTS)
+        Query postsQuery = db.collection(Constants.COLLECTION_POSTS)
                 .whereEqualTo("userId", targetUserId)
-                .orderBy("timestamp", Query.Direction.DESCENDING)
-                .limit(10) // Limit to recent 10 posts
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    userPosts.clear();
-                    for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                        Post post = doc.toObject(Post.class);
-                        if (post != null) {
-                            post.setId(doc.getId());
-                            userPosts.add(post);
-                        }
-                    }
-                    userPostAdapter.notifyDataSetChanged();
-                    
-                    // Show/hide empty state
-                    if (userPosts.isEmpty()) {
-                        emptyPostsView.setVisibility(View.VISIBLE);
-                        rvUserPosts.setVisibility(View.GONE);
-                    } else {
-                        emptyPostsView.setVisibility(View.GONE);
-                        rvUserPosts.setVisibility(View.VISIBLE);
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Toast.makeText(this, "Error loading posts: " + e.getMessage(), 
-                            Toast.LENGTH_SHORT).show();
-                    emptyPostsView.setVisibility(View.VISIBLE);
-                    rvUserPosts.setVisibility(View.GONE);
-                });
+                .orderBy("timestamp", Query.Direction.DESCENDING);
+        postsPager = new FeedPager(postsQuery, Constants.PROFILE_PAGE_SIZE, new FeedPager.Listener() {
+            @Override
+            public void onPostsChanged(List<Post> posts) {
+                showUserPosts(posts);
+            }
+
+            @Override
+            public void onError(String error) {
+                Toast.makeText(UserProfileActivity.this, "Error loading posts: " + error,
+                        Toast.LENGTH_SHORT).show();
+            }
+        });
+        rvUserPosts.addOnScrollListener(postsPager.prefetchListener(
+                Constants.PROFILE_PREFETCH_ROWS * Constants.PROFILE_GRID_COLUMNS));
+        postsPager.start();
+    }
+
+    private void showUserPosts(List<Post> userPosts) {
+        if (isDestroyed()) return;
+        userPostAdapter.submitList(userPosts, null);
+
+        // Show/hide empty state
+        if (userPosts.isEmpty()) {
+            emptyPostsView.setVisibility(View.VISIBLE);
+            rvUserPosts.setVisibility(View.GONE);
+        } else {
+            emptyPostsView.setVisibility(View.GONE);
+            rvUserPosts.setVisibility(View.VISIBLE);
+        }
     }
 
     private void setupButtons() {
@@ -225,27 +233,32 @@ public class UserProfileActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * Answered from the locally cached followed set; only read the follow
+     * document when that set has never been loaded
+     */
     private void checkFollowStatus() {
         if (currentUserId == null) return;
-        
-        db.collection("followers")
-                .document(targetUserId)
-                .collection("userFollowers")
-                .document(currentUserId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        btnFollow.setText("Unfollow");
-                        btnFollow.setBackgroundTintList(getColorStateList(R.color.error_red));
-                    } else {
-                        btnFollow.setText("Follow");
-                        btnFollow.setBackgroundTintList(getColorStateList(R.color.primary_color));
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    btnFollow.setText("Follow");
-                    btnFollow.setBackgroundTintList(getColorStateList(R.color.primary_color));
-                });
+
+        FollowService followService = FollowService.getInstance(this);
+        if (followService.isLoaded()) {
+            showFollowing(followService.isFollowing(targetUserId));
+            return;
+        }
+        followService.load()
+                .addOnSuccessListener(followed -> showFollowing(followed.contains(targetUserId)))
+                .addOnFailureListener(e -> showFollowing(false));
+    }
+
+    private void showFollowing(boolean following) {
+        if (isDestroyed()) return;
+        if (following) {
+            btnFollow.setText("Unfollow");
+            btnFollow.setBackgroundTintList(getColorStateList(R.color.error_red));
+        } else {
+            btnFollow.setText("Follow");
+            btnFollow.setBackgroundTintList(getColorStateList(R.color.primary_color));
+        }
     }
 
     private void toggleFollow() {
@@ -254,41 +267,19 @@ public class UserProfileActivity extends AppCompatActivity {
             return;
         }
 
-        boolean isFollowing = btnFollow.getText().equals("Unfollow");
-        
-        if (isFollowing) {
-            // Unfollow
-            db.collection("followers")
-                    .document(targetUserId)
-                    .collection("userFollowers")
-                    .document(currentUserId)
-                    .delete()
-                    .addOnSuccessListener(aVoid -> {
-                        btnFollow.setText("Follow");
-                        btnFollow.setBackgroundTintList(getColorStateList(R.color.primary_color));
-                        Toast.makeText(this, "Unfollowed", Toast.LENGTH_SHORT).show();
-                    })
-                    .addOnFailureListener(e -> {
-                        Toast.makeText(this, "Error unfollowing: " + e.getMessage(), 
-                                Toast.LENGTH_SHORT).show();
-                    });
-        } else {
-            // Follow
-            db.collection("followers")
-                    .document(targetUserId)
-                    .collection("userFollowers")
-                    .document(currentUserId)
-                    .set(new java.util.HashMap<>())
-                    .addOnSuccessListener(aVoid -> {
-                        btnFollow.setText("Unfollow");
-                        btnFollow.setBackgroundTintList(getColorStateList(R.color.error_red));
-                        Toast.makeText(this, "Followed", Toast.LENGTH_SHORT).show();
-                    })
-                    .addOnFailureListener(e -> {
-                        Toast.makeText(this, "Error following: " + e.getMessage(), 
-                                Toast.LENGTH_SHORT).show();
-                    });
-        }
+        boolean follow = !FollowService.getInstance(this).isFollowing(targetUserId);
+        btnFollow.setEnabled(false);
+        FollowService.getInstance(this).setFollowing(targetUserId, follow)
+                .addOnSuccessListener(aVoid -> {
+                    btnFollow.setEnabled(true);
+                    showFollowing(follow);
+                    Toast.makeText(this, follow ? "Followed" : "Unfollowed", Toast.LENGTH_SHORT).show();
+                })
+                .addOnFailureListener(e -> {
+                    btnFollow.setEnabled(true);
+                    Toast.makeText(this, (follow ? "Error following: " : "Error unfollowing: ") + e.getMessage(),
+                            Toast.LENGTH_SHORT).show();
+                });
     }
 
     private void openChat() {
@@ -304,4 +295,12 @@ public class UserProfileActivity extends AppCompatActivity {
         }
         return super.onOptionsItemSelected(item);
     }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (postsPager != null) {
+            postsPager.stop();
+        }
+    }
 }
@@ -0,0 +1,206 @@
+package com.example.socialapp;
+
+import android.os.SystemClock;
+import android.util.LruCache;
+
+import androidx.annotation.Nullable;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Process-wide cache of user documents shared by adapters and screens.
+ * Entries expire after a TTL, the least recently used ones are evicted first,
+ * and concurrent lookups for the same user share a single Firestore read.
+ */
+public class UserProfileCache {
+
+    /**
+     * user is null when the document does not exist or the read failed;
+     * error is only set in the second case
+     */
+    public interface ProfileCallback {
+        void onResult(@Nullable User user, @Nullable String error);
+    }
+
+    private static UserProfileCache instance;
+
+    private final FirebaseFirestore db;
+    private final LruCache<String, Entry> entries;
+    private final Map<String, List<ProfileCallback>> inFlight = new HashMap<>();
+    // Reads that started before an invalidate must not repopulate the cache
+    private final Set<String> staleInFlight = new HashSet<>();
+
+    private static class Entry {
+        final User user;
+        final long loadedAt;
+
+        Entry(User user, long loadedAt) {
+            this.user = user;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private UserProfileCache() {
+        db = FirebaseFirestore.getInstance();
+        entries = new LruCache<>(Constants.USER_CACHE_MAX_ENTRIES);
+    }
+
+    public static synchronized UserProfileCache getInstance() {
+        if (instance == null) {
+            instance = new UserProfileCache();
+        }
+        return instance;
+    }
+
+    /**
+     * Fresh cached user, or null if the user is unknown, missing or expired
+     */
+    @Nullable
+    public synchronized User peek(String userId) {
+        Entry entry = freshEntry(userId);
+        return entry != null ? entry.user : null;
+    }
+
+    public void get(String userId, ProfileCallback callback) {
+        if (userId == null || userId.isEmpty()) {
+            callback.onResult(null, null);
+            return;
+        }
+
+        Entry entry;
+        synchronized (this) {
+            entry = freshEntry(userId);
+            if (entry == null) {
+                List<ProfileCallback> waiting = inFlight.get(userId);
+                if (waiting != null) {
+                    // Someone is already reading this user; wait for that result
+                    waiting.add(callback);
+                    return;
+                }
+                waiting = new ArrayList<>();
+                waiting.add(callback);
+                inFlight.put(userId, waiting);
+            }
+        }
+        if (entry != null) {
+            callback.onResult(entry.user, null);
+            return;
+        }
+
+        db.collection(Constants.COLLECTION_USERS).document(userId)
+                .get()
+                .addOnCompleteListener(task -> {
+                    if (task.isSuccessful()) {
+                        User user = toUser(task.getResult());
+                        synchronized (this) {
+                            if (!staleInFlight.remove(userId)) {
+                                entries.put(userId, new Entry(user, SystemClock.elapsedRealtime()));
+                            }
+                        }
+                        deliver(userId, user, null);
+                    } else {
+                        String error = task.getException() != null ?
+                                task.getException().getMessage() : "Unknown error";
+                        deliver(userId, null, error);
+                    }
+                });
+    }
+
+    /**
+     * Resolve every uncached user in one round trip: ids that are neither cached
+     * nor already being read are fetched with chunked whereIn(documentId) queries.
+     * Lookups issued while the batch is in flight wait on it instead of reading.
+     */
+    public void prefetch(Collection<String> userIds) {
+        List<String> missing = new ArrayList<>();
+        synchronized (this) {
+            for (String userId : userIds) {
+                if (userId == null || userId.isEmpty()) continue;
+                if (freshEntry(userId) != null || inFlight.containsKey(userId)) continue;
+                inFlight.put(userId, new ArrayList<>());
+                missing.add(userId);
+            }
+        }
+
+        for (int start = 0; start < missing.size(); start += Constants.FIRESTORE_WHERE_IN_LIMIT) {
+            List<String> chunk = new ArrayList<>(missing.subList(start,
+                    Math.min(start + Constants.FIRESTORE_WHERE_IN_LIMIT, missing.size())));
+            db.collection(Constants.COLLECTION_USERS)
+                    .whereIn(FieldPath.documentId(), chunk)
+                    .get()
+                    .addOnSuccessListener(querySnapshot -> {
+                        Map<String, User> found = new HashMap<>();
+                        for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
+                            found.put(doc.getId(), toUser(doc));
+                        }
+                        long now = SystemClock.elapsedRealtime();
+                        for (String userId : chunk) {
+                            // Ids with no document are cached as missing too
+                            User user = found.get(userId);
+                            synchronized (this) {
+                                if (!staleInFlight.remove(userId)) {
+                                    entries.put(userId, new Entry(user, now));
+                                }
+                            }
+                            deliver(userId, user, null);
+                        }
+                    })
+                    .addOnFailureListener(e -> {
+                        for (String userId : chunk) {
+                            deliver(userId, null, e.getMessage());
+                        }
+                    });
+        }
+    }
+
+    public synchronized void put(User user) {
+        if (user == null || user.getUserId() == null) return;
+        entries.put(user.getUserId(), new Entry(user, SystemClock.elapsedRealtime()));
+    }
+
+    public synchronized void invalidate(String userId) {
+        if (userId != null) {
+            entries.remove(userId);
+            if (inFlight.containsKey(userId)) {
+                staleInFlight.add(userId);
+            }
+        }
+    }
+
+    private void deliver(String userId, User user, String error) {
+        List<ProfileCallback> waiting;
+        synchronized (this) {
+            waiting = inFlight.remove(userId);
+            staleInFlight.remove(userId);
+        }
+        if (waiting == null) return;
+        for (ProfileCallback callback : waiting) {
+            callback.onResult(user, error);
+        }
+    }
+
+    private Entry freshEntry(String userId) {
+        Entry entry = entries.get(userId);
+        if (entry == null) return null;
+        if (SystemClock.elapsedRealtime() - entry.loadedAt > Constants.USER_CACHE_TTL_MS) {
+            entries.remove(userId);
+            return null;
+        }
+        return entry;
+    }
+
+    private static User toUser(DocumentSnapshot document) {
+        if (document == null || !document.exists()) return null;
+        return ModelMapper.toUser(document);
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.socialapp;
+
+import android.content.Context;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Aggregate counts kept on each users/{uid} document, so a profile loads
+ * with one document read. Every write path that changes one of them adjusts
+ * it in the same batch or transaction as the change itself.
+ *
+ * Users created before the counts existed have no statsVersion; their
+ * counts are computed once with aggregation queries and stored by the user
+ * themselves. Other viewers compute them without storing anything.
+ */
+public class UserStats {
+
+    public static final String POSTS_COUNT = "postsCount";
+    public static final String LIKES_RECEIVED = "likesReceived";
+    public static final String COMMENTS_MADE = "commentsMade";
+    // Comments on the user's posts
+    public static final String COMMENTS_RECEIVED = "commentsReceived";
+    public static final String FOLLOWERS_COUNT = "followersCount";
+    public static final String FOLLOWING_COUNT = "followingCount";
+    static final String STATS_VERSION = "statsVersion";
+    static final long CURRENT_STATS_VERSION = 2;
+
+    private UserStats() {}
+
+    public static void increment(WriteBatch batch, String userId, String field, long delta) {
+        if (userId == null || delta == 0) return;
+        batch.set(userRef(userId), Collections.singletonMap(field, FieldValue.increment(delta)), SetOptions.merge());
+    }
+
+    public static void increment(Transaction transaction, String userId, String field, long delta) {
+        if (userId == null || delta == 0) return;
+        transaction.set(userRef(userId), Collections.singletonMap(field, FieldValue.increment(delta)), SetOptions.merge());
+    }
+
+    /**
+     * Counts of a newly registered user
+     */
+    public static Map<String, Object> emptyStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put(POSTS_COUNT, 0L);
+        stats.put(LIKES_RECEIVED, 0L);
+        stats.put(COMMENTS_MADE, 0L);
+        stats.put(COMMENTS_RECEIVED, 0L);
+        stats.put(FOLLOWERS_COUNT, 0L);
+        stats.put(FOLLOWING_COUNT, 0L);
+        stats.put(STATS_VERSION, CURRENT_STATS_VERSION);
+        return stats;
+    }
+
+    public static boolean hasStats(DocumentSnapshot userDoc) {
+        return ModelMapper.getLong(userDoc, STATS_VERSION) >= CURRENT_STATS_VERSION;
+    }
+
+    /**
+     * Compute the counts of a user who has none yet with aggregation queries,
+     * without storing them
+     */
+    public static Task<Map<String, Object>> compute(String userId) {
+        StatsQueryService statsQueries = StatsQueryService.getInstance();
+        Task<StatsQueryService.PostStats> posts = statsQueries.postStats(userId);
+        Task<Long> comments = statsQueries.commentsMade(userId);
+        Task<Long> followers = statsQueries.followers(userId);
+        Task<Long> following = statsQueries.following(userId);
+
+        return Tasks.whenAllSuccess(posts, comments, followers, following).continueWith(task -> {
+            Map<String, Object> stats = emptyStats();
+            stats.put(POSTS_COUNT, posts.getResult().posts);
+            stats.put(LIKES_RECEIVED, posts.getResult().likes);
+            stats.put(COMMENTS_MADE, comments.getResult());
+            stats.put(COMMENTS_RECEIVED, posts.getResult().comments);
+            stats.put(FOLLOWERS_COUNT, followers.getResult());
+            stats.put(FOLLOWING_COUNT, following.getResult());
+            return stats;
+        });
+    }
+
+    /**
+     * Compute and store the counts of the signed-in user if they have none
+     * yet. Following is counted once legacy follows are in the following
+     * index. The write is a transaction that only goes ahead while
+     * statsVersion is still missing, so counts already kept by increments
+     * are never replaced; the task completes with the stored counts.
+     */
+    public static Task<Map<String, Object>> backfill(Context context) {
+        String userId = FirebaseHelper.getCurrentUserId();
+        if (userId == null) return Tasks.forException(new IllegalStateException("No authenticated user"));
+
+        DocumentReference userRef = userRef(userId);
+        return FollowService.getInstance(context).migrateLegacyFollows()
+                .onSuccessTask(migrated -> {
+                    // A count from before the migration would miss the copied follows
+                    StatsQueryService.getInstance().invalidateFollowing(userId);
+                    return compute(userId);
+                })
+                .onSuccessTask(stats -> FirebaseFirestore.getInstance().runTransaction(transaction -> {
+                    DocumentSnapshot userDoc = transaction.get(userRef);
+                    if (hasStats(userDoc)) return current(userDoc);
+                    transaction.set(userRef, stats, SetOptions.merge());
+                    return stats;
+                }));
+    }
+
+    private static Map<String, Object> current(DocumentSnapshot userDoc) {
+        Map<String, Object> stats = new HashMap<>();
+        for (String field : emptyStats().keySet()) {
+            stats.put(field, ModelMapper.getLong(userDoc, field));
+        }
+        return stats;
+    }
+
+    private static DocumentReference userRef(String userId) {
+        return FirebaseFirestore.getInstance().collection(Constants.COLLECTION_USERS).document(userId);
+    }
+}
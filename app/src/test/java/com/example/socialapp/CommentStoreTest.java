@@ -0,0 +1,153 @@
+package com.example.socialapp;
+
+import com.google.firebase.firestore.DocumentChange;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Positions in CommentStore against the thread it was fed, replaying tail
+ * snapshots the way Firestore reports them together with older pages
+ */
+public class CommentStoreTest {
+
+    private static final int WINDOW = 5;
+
+    private final CommentStore store = new CommentStore();
+    // Every comment of the thread, oldest first; ids grow with the timestamp
+    private final List<Integer> thread = new ArrayList<>();
+    // What the store should hold: loaded older comments, then the live tail
+    private final List<Integer> older = new ArrayList<>();
+    private final List<Integer> tail = new ArrayList<>();
+    private int nextId = 0;
+
+    @Test
+    public void prependedPageShiftsLoadedComments() {
+        store.applyTailChange(DocumentChange.Type.ADDED, -1, 0, comment(10), false);
+        store.applyTailChange(DocumentChange.Type.ADDED, -1, 1, comment(11), false);
+        assertEquals(1, store.indexOf("11"));
+
+        List<Comment> page = new ArrayList<>();
+        page.add(comment(8));
+        page.add(comment(9));
+        store.prependOlder(page);
+
+        assertEquals(0, store.indexOf("8"));
+        assertEquals(1, store.indexOf("9"));
+        assertEquals(2, store.indexOf("10"));
+        assertEquals(3, store.indexOf("11"));
+    }
+
+    @Test
+    public void commentPushedOutOfTailMovesAboveIt() {
+        List<Comment> page = new ArrayList<>();
+        page.add(comment(1));
+        store.prependOlder(page);
+        store.applyTailChange(DocumentChange.Type.ADDED, -1, 0, comment(2), false);
+        store.applyTailChange(DocumentChange.Type.ADDED, -1, 1, comment(3), false);
+        assertEquals(2, store.indexOf("3"));
+
+        // A newer comment arrives in a full window of two
+        store.applyTailChange(DocumentChange.Type.REMOVED, 0, -1, null, true);
+        store.applyTailChange(DocumentChange.Type.ADDED, -1, 1, comment(4), false);
+
+        assertEquals(4, store.size());
+        assertEquals(0, store.indexOf("1"));
+        assertEquals(1, store.indexOf("2"));
+        assertEquals(2, store.indexOf("3"));
+        assertEquals(3, store.indexOf("4"));
+    }
+
+    @Test
+    public void replayedSnapshotsAndPagesMatchThread() {
+        Random random = new Random(23);
+        for (int i = 0; i < 40; i++) {
+            thread.add(nextId++);
+        }
+        publishTail();
+
+        for (int step = 0; step < 5000; step++) {
+            int op = random.nextInt(10);
+            if (op < 4) {
+                thread.add(nextId++);
+                publishTail();
+            } else if (op < 6 && !tail.isEmpty()) {
+                thread.remove(tail.get(random.nextInt(tail.size())));
+                publishTail();
+            } else if (op < 7 && !tail.isEmpty()) {
+                int index = random.nextInt(tail.size());
+                store.applyTailChange(DocumentChange.Type.MODIFIED, index, index, comment(tail.get(index)), false);
+            } else {
+                loadOlderPage();
+            }
+            assertMatches();
+        }
+    }
+
+    /**
+     * Report the changes from the current tail to the newest WINDOW comments
+     * of the thread: removals by old index first, then additions by new index
+     */
+    private void publishTail() {
+        List<Integer> newTail = new ArrayList<>(thread.subList(Math.max(0, thread.size() - WINDOW), thread.size()));
+        boolean windowFull = newTail.size() == WINDOW;
+        int newFirst = newTail.isEmpty() ? -1 : newTail.get(0);
+
+        for (Integer id : new ArrayList<>(tail)) {
+            if (newTail.contains(id)) continue;
+            int oldIndex = tail.indexOf(id);
+            tail.remove(id);
+            boolean leftWindow = windowFull && id < newFirst;
+            store.applyTailChange(DocumentChange.Type.REMOVED, oldIndex, -1, null, leftWindow);
+            if (leftWindow) {
+                older.add(id);
+            }
+        }
+        for (int i = 0; i < newTail.size(); i++) {
+            Integer id = newTail.get(i);
+            if (tail.contains(id)) continue;
+            tail.add(i, id);
+            older.remove(id);
+            store.applyTailChange(DocumentChange.Type.ADDED, -1, i, comment(id), false);
+        }
+        assertEquals(newTail, tail);
+    }
+
+    private void loadOlderPage() {
+        Integer firstShown = !older.isEmpty() ? older.get(0) : (!tail.isEmpty() ? tail.get(0) : null);
+        if (firstShown == null) return;
+        int end = thread.indexOf(firstShown);
+        if (end < 0) return;
+
+        List<Comment> page = new ArrayList<>();
+        List<Integer> pageIds = new ArrayList<>();
+        for (Integer id : thread.subList(Math.max(0, end - WINDOW), end)) {
+            page.add(comment(id));
+            if (!older.contains(id) && !tail.contains(id)) {
+                pageIds.add(id);
+            }
+        }
+        store.prependOlder(page);
+        older.addAll(0, pageIds);
+    }
+
+    private void assertMatches() {
+        List<Integer> expected = new ArrayList<>(older);
+        expected.addAll(tail);
+        assertEquals(expected.size(), store.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(i, store.indexOf(String.valueOf(expected.get(i))));
+        }
+    }
+
+    private static Comment comment(int id) {
+        Comment comment = new Comment();
+        comment.setId(String.valueOf(id));
+        return comment;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.socialapp;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Ranking order of FeedRanker, including after incremental updates
+ */
+public class FeedRankerTest {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+    private static final long NOW = 1_700_000_000_000L;
+
+    private final Set<String> followed = new HashSet<>();
+    private final Map<String, Integer> interactions = new HashMap<>();
+    private FeedRanker ranker;
+
+    @Before
+    public void setUp() {
+        ranker = new FeedRanker(new FeedRanker.Signals() {
+            @Override
+            public boolean isFollowing(String authorId) {
+                return followed.contains(authorId);
+            }
+
+            @Override
+            public int interactionCount(String authorId) {
+                Integer count = interactions.get(authorId);
+                return count != null ? count : 0;
+            }
+        });
+    }
+
+    @Test
+    public void newerPostRanksFirstAtEqualEngagement() {
+        ranker.upsert(new FeedRanker.Candidate("old", "a", NOW - 10 * HOUR, 5, 1));
+        ranker.upsert(new FeedRanker.Candidate("new", "b", NOW - HOUR, 5, 1));
+        assertEquals(Arrays.asList("new", "old"), ranker.rankedIds());
+    }
+
+    @Test
+    public void engagementOutweighsSmallAgeDifference() {
+        ranker.upsert(new FeedRanker.Candidate("quiet", "a", NOW - HOUR, 0, 0));
+        ranker.upsert(new FeedRanker.Candidate("busy", "b", NOW - 2 * HOUR, 200, 40));
+        assertEquals("busy", ranker.idAt(0));
+    }
+
+    @Test
+    public void followingAnAuthorMovesTheirPostsUp() {
+        ranker.upsert(new FeedRanker.Candidate("p1", "stranger", NOW - HOUR, 3, 0));
+        ranker.upsert(new FeedRanker.Candidate("p2", "friend", NOW - 3 * HOUR, 3, 0));
+        assertEquals("p1", ranker.idAt(0));
+
+        followed.add("friend");
+        ranker.rescoreAuthor("friend");
+        assertEquals("p2", ranker.idAt(0));
+    }
+
+    @Test
+    public void updateAndRemoveKeepOrderAndSize() {
+        ranker.upsert(new FeedRanker.Candidate("p1", "a", NOW, 0, 0));
+        ranker.upsert(new FeedRanker.Candidate("p2", "a", NOW, 0, 0));
+        ranker.upsert(new FeedRanker.Candidate("p1", "a", NOW, 50, 0));
+        assertEquals(2, ranker.size());
+        assertEquals("p1", ranker.idAt(0));
+
+        assertTrue(ranker.remove("p1"));
+        assertFalse(ranker.remove("p1"));
+        assertEquals(Arrays.asList("p2"), ranker.rankedIds());
+    }
+
+    @Test
+    public void incrementalOrderMatchesFullSort() {
+        Random random = new Random(42);
+        Map<String, FeedRanker.Candidate> live = new HashMap<>();
+        for (int i = 0; i < 2000; i++) {
+            FeedRanker.Candidate candidate = randomCandidate(random, "p" + random.nextInt(500));
+            ranker.upsert(candidate);
+            live.put(candidate.id, candidate);
+            if (random.nextInt(10) == 0) {
+                String removed = "p" + random.nextInt(500);
+                ranker.remove(removed);
+                live.remove(removed);
+            }
+        }
+
+        List<FeedRanker.Candidate> expected = new ArrayList<>(live.values());
+        expected.sort((a, b) -> {
+            int byScore = Double.compare(ranker.score(b), ranker.score(a));
+            return byScore != 0 ? byScore : a.id.compareTo(b.id);
+        });
+        List<String> expectedIds = new ArrayList<>();
+        for (FeedRanker.Candidate candidate : expected) {
+            expectedIds.add(candidate.id);
+        }
+        assertEquals(expectedIds, ranker.rankedIds());
+    }
+
+    private static FeedRanker.Candidate randomCandidate(Random random, String id) {
+        return new FeedRanker.Candidate(id, "author" + random.nextInt(2000),
+                NOW - (long) (random.nextDouble() * 72 * HOUR),
+                random.nextInt(500), random.nextInt(60));
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.socialapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Writes and counter changes of a follow or unfollow for each state of the
+ * two index documents, including legacy follows that have only an empty
+ * follower document
+ */
+public class FollowEdgesTest {
+
+    @Test
+    public void newFollowWritesBothEdgesAndCounters() {
+        FollowEdges edges = FollowEdges.of(false, false, true);
+        assertTrue(edges.writeEdges);
+        assertFalse(edges.deleteEdges);
+        assertEquals(1, edges.followersDelta);
+        assertEquals(1, edges.followingDelta);
+    }
+
+    @Test
+    public void repeatedFollowChangesNothing() {
+        FollowEdges edges = FollowEdges.of(true, true, true);
+        assertFalse(edges.changesAnything());
+        assertEquals(0, edges.followersDelta);
+        assertEquals(0, edges.followingDelta);
+    }
+
+    @Test
+    public void followingLegacyEdgeRepairsFollowingIndex() {
+        // followers/{target}/userFollowers/{me} exists with no fields
+        FollowEdges edges = FollowEdges.of(true, false, true);
+        assertTrue(edges.writeEdges);
+        assertFalse(edges.deleteEdges);
+        // The follower is already counted; the new following document is not
+        assertEquals(0, edges.followersDelta);
+        assertEquals(1, edges.followingDelta);
+    }
+
+    @Test
+    public void unfollowingLegacyEdgeOnlyUncountsFollower() {
+        FollowEdges edges = FollowEdges.of(true, false, false);
+        assertTrue(edges.deleteEdges);
+        assertFalse(edges.writeEdges);
+        assertEquals(-1, edges.followersDelta);
+        assertEquals(0, edges.followingDelta);
+    }
+
+    @Test
+    public void unfollowRemovesBothEdgesAndCounters() {
+        FollowEdges edges = FollowEdges.of(true, true, false);
+        assertTrue(edges.deleteEdges);
+        assertEquals(-1, edges.followersDelta);
+        assertEquals(-1, edges.followingDelta);
+    }
+
+    @Test
+    public void repeatedUnfollowChangesNothing() {
+        assertFalse(FollowEdges.of(false, false, false).changesAnything());
+    }
+
+    @Test
+    public void legacyEdgeIsFoundByPath() {
+        assertEquals("followers/target/userFollowers/me", FollowEdges.followerPath("target", "me"));
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.socialapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Key lookups of KeyedList against a plain list after every edit
+ */
+public class KeyedListTest {
+
+    private final KeyedList<String> list = new KeyedList<>(item -> item);
+    private final List<String> expected = new ArrayList<>();
+
+    @Test
+    public void insertAtHeadShiftsLaterKeys() {
+        list.add("a");
+        assertEquals(0, list.indexOf("a"));
+
+        list.add(0, "b");
+        assertEquals(0, list.indexOf("b"));
+        assertEquals(1, list.indexOf("a"));
+        assertEquals("a", list.getByKey("a"));
+    }
+
+    @Test
+    public void insertInMiddleShiftsLaterKeys() {
+        list.add("a");
+        list.add("b");
+        list.add("c");
+        assertEquals(2, list.indexOf("c"));
+
+        list.add(1, "x");
+        assertEquals(0, list.indexOf("a"));
+        assertEquals(1, list.indexOf("x"));
+        assertEquals(2, list.indexOf("b"));
+        assertEquals(3, list.indexOf("c"));
+    }
+
+    @Test
+    public void insertedRunShiftsLaterKeys() {
+        list.add("x");
+        list.add("y");
+        assertEquals(1, list.indexOf("y"));
+
+        List<String> run = new ArrayList<>();
+        run.add("p");
+        run.add("q");
+        list.addAll(0, run);
+        assertEquals(0, list.indexOf("p"));
+        assertEquals(1, list.indexOf("q"));
+        assertEquals(2, list.indexOf("x"));
+        assertEquals(3, list.indexOf("y"));
+    }
+
+    @Test
+    public void removeShiftsLaterKeys() {
+        list.add("a");
+        list.add("b");
+        list.add("c");
+        assertEquals(2, list.indexOf("c"));
+
+        list.remove(0);
+        assertEquals(-1, list.indexOf("a"));
+        assertEquals(0, list.indexOf("b"));
+        assertEquals(1, list.indexOf("c"));
+    }
+
+    @Test
+    public void randomEditsMatchPlainList() {
+        Random random = new Random(7);
+        int nextKey = 0;
+        for (int step = 0; step < 20000; step++) {
+            int op = random.nextInt(4);
+            if (op < 2 || expected.isEmpty()) {
+                String key = "k" + nextKey++;
+                int position = random.nextInt(expected.size() + 1);
+                list.add(position, key);
+                expected.add(position, key);
+            } else if (op == 2) {
+                int position = random.nextInt(expected.size());
+                assertEquals(expected.remove(position), list.remove(position));
+            } else {
+                // Move, as a MODIFIED change with a new index does
+                int from = random.nextInt(expected.size());
+                String key = expected.remove(from);
+                int to = random.nextInt(expected.size() + 1);
+                expected.add(to, key);
+                list.remove(from);
+                list.add(to, key);
+            }
+            // Look up a few keys between edits, as the feed does
+            for (int i = 0; i < 3 && !expected.isEmpty(); i++) {
+                int position = random.nextInt(expected.size());
+                assertEquals(position, list.indexOf(expected.get(position)));
+            }
+        }
+        assertEquals(expected, list.snapshot());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(i, list.indexOf(expected.get(i)));
+        }
+    }
+}